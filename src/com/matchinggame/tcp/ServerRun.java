@@ -1,16 +1,20 @@
 package com.matchinggame.tcp;
 
+import com.matchinggame.tcp.constants.ServerMode;
 import com.matchinggame.tcp.control.ServerControl;
 import com.matchinggame.tcp.view.ServerView;
 import javax.swing.SwingUtilities;
 
 public class ServerRun {
     public static void main(String[] args) {
+        ServerMode mode = ServerMode.fromString(args.length > 0 ? args[0] : System.getProperty("matchinggame.server.mode"));
+        int eventLoops = Integer.getInteger("matchinggame.server.eventLoops", Runtime.getRuntime().availableProcessors());
+        
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
                 ServerView view = new ServerView();
-                ServerControl serverControl = new ServerControl(view);
+                ServerControl serverControl = new ServerControl(view, mode, eventLoops);
                 
                 new Thread(new Runnable() {
                     @Override
@@ -0,0 +1,162 @@
+package com.matchinggame.tcp.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.matchinggame.tcp.control.BinaryCommandCodec;
+import com.matchinggame.tcp.control.EncodedCommand;
+import com.matchinggame.tcp.control.RoomMailbox;
+import com.matchinggame.tcp.control.RoomShard;
+import com.matchinggame.tcp.model.Command;
+import com.matchinggame.tcp.model.GameDelta;
+import com.matchinggame.tcp.model.GameRoom;
+import com.matchinggame.tcp.model.GameState;
+import com.matchinggame.tcp.model.Player;
+
+// Load harness for the room shards. Rooms are spread over the shards the way the
+// server spreads them, and every room keeps one flip in flight on its mailbox, as
+// a player waiting for the delta does. A flip does the room thread's share of the
+// work for real: update the GameState, build the delta and encode its frame.
+// Sockets, the lobby and the database are left out, so the numbers show how far
+// game logic alone scales with the shard count.
+//
+//   java -cp build/classes com.matchinggame.tcp.bench.ShardBench [rooms] [seconds] [shard counts...]
+public class ShardBench {
+    private static final int CARD_COUNT = 16;
+    private static final int WARMUP_SEC = 2;
+
+    private static volatile boolean running;
+
+    public static void main(String[] args) throws InterruptedException {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int[] shardCounts = { 1, 2, 4, 8 };
+        if (args.length > 2) {
+            shardCounts = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                shardCounts[i - 2] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.printf("%d cores, %d rooms of %d cards, %d s per run%n",
+                Runtime.getRuntime().availableProcessors(), rooms, CARD_COUNT, seconds);
+        double baseline = 0;
+        for (int shardCount : shardCounts) {
+            double flipsPerSec = run(shardCount, rooms, seconds);
+            if (baseline == 0) {
+                baseline = flipsPerSec;
+            }
+            System.out.printf("shards=%-3d %,12.0f flips/s   x%.2f%n", shardCount, flipsPerSec, flipsPerSec / baseline);
+        }
+    }
+
+    private static double run(int shardCount, int rooms, int seconds) throws InterruptedException {
+        Map<String, String> roomIdByPlayer = new ConcurrentHashMap<>();
+        RoomShard[] shards = new RoomShard[shardCount];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new RoomShard(i, roomIdByPlayer, e -> e.printStackTrace());
+        }
+
+        LongAdder flips = new LongAdder();
+        Map<String, Table> tables = new HashMap<>();
+        for (int i = 0; i < rooms; i++) {
+            String roomId = "Bench-" + i;
+            RoomShard shard = shards[Math.floorMod(roomId.toLowerCase().hashCode(), shards.length)];
+            Player host = new Player("host" + i, 0, null);
+            GameRoom room = new GameRoom(roomId, host, CARD_COUNT);
+            shard.getRooms().add(room);
+            shard.getRooms().join(room, new Player("guest" + i, 0, null));
+            room.initializeGame();
+            tables.put(roomId, new Table(room, shard.getRooms().mailboxFor(room), flips, i));
+        }
+
+        running = true;
+        for (Table table : tables.values()) {
+            table.mailbox.execute(table);
+        }
+        Thread.sleep(WARMUP_SEC * 1000L);
+        long start = System.nanoTime();
+        long before = flips.sum();
+        Thread.sleep(seconds * 1000L);
+        long done = flips.sum() - before;
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        running = false;
+        // Let the last flips drain before the next run takes the cores.
+        Thread.sleep(200);
+        return done / elapsed;
+    }
+
+    // One room's player loop: each run is one flip, and it posts the next one when done.
+    private static final class Table implements Runnable {
+        private final GameRoom room;
+        private final RoomMailbox mailbox;
+        private final LongAdder flips;
+        private final Random random;
+        private int first = -1;
+
+        Table(GameRoom room, RoomMailbox mailbox, LongAdder flips, int seed) {
+            this.room = room;
+            this.mailbox = mailbox;
+            this.flips = flips;
+            this.random = new Random(seed);
+        }
+
+        @Override
+        public void run() {
+            if (!running) return;
+
+            GameState state = room.getGameState();
+            int index = pickCard(state);
+            GameDelta delta = new GameDelta(room.getRoomId(), state.nextVersion());
+            state.setCardFlipped(index, true);
+            delta.addFlipped(index);
+            if (first < 0) {
+                first = index;
+            } else {
+                String player = state.getCurrentPlayerUsername();
+                if (state.isSameFace(first, index)) {
+                    state.setCardMatched(first, true);
+                    state.setCardMatched(index, true);
+                    delta.addMatched(first);
+                    delta.addMatched(index);
+                    delta.setScore(player, state.addScore(player, 1));
+                } else {
+                    state.setCardFlipped(first, false);
+                    state.setCardFlipped(index, false);
+                    delta.addUnflipped(first);
+                    delta.addUnflipped(index);
+                    state.setCurrentPlayerUsername(state.getSeatUsername(0).equals(player)
+                            ? state.getSeatUsername(1) : state.getSeatUsername(0));
+                }
+                first = -1;
+            }
+            delta.setTurn(state.getCurrentPlayerUsername(), state.getMessage(), System.currentTimeMillis(), 10000);
+            try {
+                new EncodedCommand(new Command(Command.Type.GAME_DELTA, "SERVER", delta))
+                        .frameFor(BinaryCommandCodec.INSTANCE, false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            flips.increment();
+
+            if (state.isAllMatched()) {
+                room.initializeGame();
+            }
+            mailbox.execute(this);
+        }
+
+        private int pickCard(GameState state) {
+            while (true) {
+                int index = random.nextInt(state.getCardCount());
+                if (index != first && !state.isCardMatched(index)) {
+                    return index;
+                }
+            }
+        }
+    }
+}
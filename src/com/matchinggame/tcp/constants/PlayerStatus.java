@@ -0,0 +1,34 @@
+package com.matchinggame.tcp.constants;
+
+public enum PlayerStatus {
+
+	OFFLINE("Offline"), LOBBY("Online"), IN_ROOM("InRoom"), PLAYING("Playing");
+
+	private final String label;
+
+	PlayerStatus(String label) {
+		this.label = label;
+	}
+
+	// What clients see in Player.getStatus().
+	public String getLabel() {
+		return label;
+	}
+
+	// The moves a logged-in player can make. Players waiting alone in a room still
+	// count as LOBBY, since they can be invited; a full room is IN_ROOM. Logging in
+	// and out is not a transition.
+	public boolean canMoveTo(PlayerStatus next) {
+		switch (this) {
+		case LOBBY:
+			return next == IN_ROOM;
+		case IN_ROOM:
+			return next == LOBBY || next == PLAYING;
+		case PLAYING:
+			return next == IN_ROOM || next == LOBBY;
+		default:
+			return false;
+		}
+	}
+
+}
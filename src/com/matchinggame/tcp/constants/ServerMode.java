@@ -0,0 +1,18 @@
+package com.matchinggame.tcp.constants;
+
+public enum ServerMode {
+
+	BLOCKING, NIO, VIRTUAL;
+
+	public static ServerMode fromString(String value) {
+		if (value != null) {
+			for (ServerMode mode : values()) {
+				if (mode.name().equalsIgnoreCase(value.trim())) {
+					return mode;
+				}
+			}
+		}
+		return BLOCKING;
+	}
+
+}
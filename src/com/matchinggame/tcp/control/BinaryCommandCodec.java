@@ -0,0 +1,606 @@
+package com.matchinggame.tcp.control;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.matchinggame.tcp.model.Command;
+import com.matchinggame.tcp.model.FlipData;
+import com.matchinggame.tcp.model.GameDelta;
+import com.matchinggame.tcp.model.GameRoom;
+import com.matchinggame.tcp.model.GameState;
+import com.matchinggame.tcp.model.InviteData;
+import com.matchinggame.tcp.model.LeaderboardPage;
+import com.matchinggame.tcp.model.LeaderboardQuery;
+import com.matchinggame.tcp.model.MatchHistoryEntry;
+import com.matchinggame.tcp.model.Player;
+import com.matchinggame.tcp.model.RoomSummary;
+
+// Hand-rolled encoding of Command and its payload types. Every value is
+// written as a one-byte tag followed by its fields; ints are zigzag varints
+// and strings are varint-length UTF-8, so a FLIP_CARD is around twenty bytes.
+// Types without a tag fall back to Java serialization inside the frame.
+public class BinaryCommandCodec implements CommandCodec {
+    public static final byte ID = 1;
+    public static final BinaryCommandCodec INSTANCE = new BinaryCommandCodec();
+
+    private static final Command.Type[] TYPES = Command.Type.values();
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INT = 2;
+    private static final byte TAG_BOOLEAN = 3;
+    private static final byte TAG_LIST = 4;
+    private static final byte TAG_FLIP_DATA = 5;
+    private static final byte TAG_INVITE_DATA = 6;
+    private static final byte TAG_PLAYER = 7;
+    private static final byte TAG_GAME_ROOM = 8;
+    private static final byte TAG_GAME_STATE = 9;
+    private static final byte TAG_MATCH_HISTORY_ENTRY = 10;
+    private static final byte TAG_GAME_DELTA = 11;
+    private static final byte TAG_ROOM_SUMMARY = 12;
+    private static final byte TAG_COMMAND = 13;
+    private static final byte TAG_LEADERBOARD_QUERY = 14;
+    private static final byte TAG_LEADERBOARD_PAGE = 15;
+    private static final byte TAG_SERIALIZED = 127;
+
+    // Lists and commands nest; a frame deeper than any real payload is rejected
+    // before the recursion can run the decoding thread out of stack.
+    private static final int MAX_NESTING = 16;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(Command command) throws IOException {
+        Writer writer = new Writer(64);
+        writeCommand(writer, command);
+        return writer.toByteArray();
+    }
+
+    @Override
+    public Command decode(byte[] data, int offset, int length) throws IOException {
+        return readCommand(new Reader(data, offset, length), 0);
+    }
+
+    private void writeCommand(Writer writer, Command command) throws IOException {
+        writer.writeByte(command.getType().ordinal());
+        writer.writeString(command.getUsername());
+        writeValue(writer, command.getData());
+    }
+
+    private Command readCommand(Reader reader, int depth) throws IOException {
+        int typeIndex = reader.readByte() & 0xFF;
+        if (typeIndex >= TYPES.length) {
+            throw new IOException("Unknown command type: " + typeIndex);
+        }
+        String username = reader.readString();
+        Object payload = readValue(reader, depth + 1);
+        return new Command(TYPES[typeIndex], username, payload);
+    }
+
+    private void writeValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            writer.writeByte(TAG_NULL);
+        } else if (value instanceof String) {
+            writer.writeByte(TAG_STRING);
+            writer.writeString((String) value);
+        } else if (value instanceof Integer) {
+            writer.writeByte(TAG_INT);
+            writer.writeVarInt((Integer) value);
+        } else if (value instanceof Boolean) {
+            writer.writeByte(TAG_BOOLEAN);
+            writer.writeByte((Boolean) value ? 1 : 0);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            writer.writeByte(TAG_LIST);
+            writer.writeLength(list.size());
+            for (Object element : list) {
+                writeValue(writer, element);
+            }
+        } else if (value instanceof FlipData) {
+            FlipData flipData = (FlipData) value;
+            writer.writeByte(TAG_FLIP_DATA);
+            writer.writeString(flipData.getRoomId());
+            writer.writeVarInt(flipData.getCardIndex());
+        } else if (value instanceof InviteData) {
+            InviteData inviteData = (InviteData) value;
+            writer.writeByte(TAG_INVITE_DATA);
+            writer.writeVarInt(inviteData.getCardCount());
+            writer.writeString(inviteData.getTargetUsername());
+        } else if (value instanceof Player) {
+            writer.writeByte(TAG_PLAYER);
+            writePlayer(writer, (Player) value);
+        } else if (value instanceof GameRoom) {
+            writer.writeByte(TAG_GAME_ROOM);
+            writeGameRoom(writer, (GameRoom) value);
+        } else if (value instanceof GameState) {
+            writer.writeByte(TAG_GAME_STATE);
+            writeGameState(writer, (GameState) value);
+        } else if (value instanceof GameDelta) {
+            writer.writeByte(TAG_GAME_DELTA);
+            writeGameDelta(writer, (GameDelta) value);
+        } else if (value instanceof Command) {
+            writer.writeByte(TAG_COMMAND);
+            writeCommand(writer, (Command) value);
+        } else if (value instanceof RoomSummary) {
+            RoomSummary summary = (RoomSummary) value;
+            writer.writeByte(TAG_ROOM_SUMMARY);
+            writer.writeString(summary.getRoomId());
+            writer.writeString(summary.getHostUsername());
+            writer.writeVarInt(summary.getPlayerCount());
+            writer.writeVarInt(summary.getMaxPlayers());
+            writer.writeVarInt(summary.getCardCount());
+            writer.writeString(summary.getStatus());
+        } else if (value instanceof LeaderboardQuery) {
+            LeaderboardQuery query = (LeaderboardQuery) value;
+            writer.writeByte(TAG_LEADERBOARD_QUERY);
+            writer.writeVarInt(query.getPage());
+            writer.writeVarInt(query.getPageSize());
+            writer.writeVarInt(query.getKnownVersion());
+        } else if (value instanceof LeaderboardPage) {
+            LeaderboardPage page = (LeaderboardPage) value;
+            writer.writeByte(TAG_LEADERBOARD_PAGE);
+            writer.writeVarInt(page.getVersion());
+            writer.writeVarInt(page.getFirstRank());
+            writer.writeVarInt(page.getTotalPlayers());
+            writer.writeLength(page.getPlayers().size());
+            for (Player player : page.getPlayers()) {
+                writePlayer(writer, player);
+            }
+        } else if (value instanceof MatchHistoryEntry) {
+            MatchHistoryEntry entry = (MatchHistoryEntry) value;
+            writer.writeByte(TAG_MATCH_HISTORY_ENTRY);
+            writer.writeString(entry.getOpponentName());
+            writer.writeVarInt(entry.getMyScore());
+            writer.writeVarInt(entry.getOpponentScore());
+            writer.writeString(entry.getResult());
+            writer.writeLong(entry.getPlayedOn() != null ? entry.getPlayedOn().getTime() : Long.MIN_VALUE);
+        } else {
+            byte[] serialized = SerializedCommandCodec.serialize(value);
+            writer.writeByte(TAG_SERIALIZED);
+            writer.writeLength(serialized.length);
+            writer.writeBytes(serialized, 0, serialized.length);
+        }
+    }
+
+    private Object readValue(Reader reader, int depth) throws IOException {
+        if (depth > MAX_NESTING) {
+            throw new IOException("Value nested more than " + MAX_NESTING + " levels deep");
+        }
+        byte tag = reader.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return reader.readString();
+            case TAG_INT:
+                return reader.readVarInt();
+            case TAG_BOOLEAN:
+                return reader.readByte() != 0;
+            case TAG_LIST: {
+                int size = reader.readLength();
+                ArrayList<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(reader, depth + 1));
+                }
+                return list;
+            }
+            case TAG_FLIP_DATA:
+                return new FlipData(reader.readString(), reader.readVarInt());
+            case TAG_INVITE_DATA: {
+                int cardCount = reader.readVarInt();
+                return new InviteData(cardCount, reader.readString());
+            }
+            case TAG_PLAYER:
+                return readPlayer(reader);
+            case TAG_GAME_ROOM:
+                return readGameRoom(reader);
+            case TAG_GAME_STATE:
+                return readGameState(reader);
+            case TAG_GAME_DELTA:
+                return readGameDelta(reader);
+            case TAG_COMMAND:
+                return readCommand(reader, depth);
+            case TAG_ROOM_SUMMARY: {
+                String roomId = reader.readString();
+                String hostUsername = reader.readString();
+                int playerCount = reader.readVarInt();
+                int maxPlayers = reader.readVarInt();
+                int cardCount = reader.readVarInt();
+                return new RoomSummary(roomId, hostUsername, playerCount, maxPlayers, cardCount, reader.readString());
+            }
+            case TAG_LEADERBOARD_QUERY: {
+                int page = reader.readVarInt();
+                int pageSize = reader.readVarInt();
+                return new LeaderboardQuery(page, pageSize, reader.readVarInt());
+            }
+            case TAG_LEADERBOARD_PAGE: {
+                int version = reader.readVarInt();
+                int firstRank = reader.readVarInt();
+                int totalPlayers = reader.readVarInt();
+                int count = reader.readLength();
+                ArrayList<Player> players = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    players.add(readPlayer(reader));
+                }
+                return new LeaderboardPage(version, firstRank, totalPlayers, players);
+            }
+            case TAG_MATCH_HISTORY_ENTRY: {
+                String opponentName = reader.readString();
+                int myScore = reader.readVarInt();
+                int opponentScore = reader.readVarInt();
+                String result = reader.readString();
+                long playedOn = reader.readLong();
+                return new MatchHistoryEntry(opponentName, myScore, opponentScore, result,
+                        playedOn == Long.MIN_VALUE ? null : new Date(playedOn));
+            }
+            case TAG_SERIALIZED: {
+                int length = reader.readLength();
+                int start = reader.skip(length);
+                return SerializedCommandCodec.deserialize(reader.data, start, length);
+            }
+            default:
+                throw new IOException("Unknown value tag: " + tag);
+        }
+    }
+
+    private void writePlayer(Writer writer, Player player) {
+        writer.writeString(player.getUsername());
+        writer.writeVarInt(player.getTotalScore());
+        writer.writeString(player.getStatus());
+        writer.writeVarInt(player.getTotalWins());
+        writer.writeVarInt(player.getTotalLosses());
+        writer.writeVarInt(player.getTotalDraws());
+    }
+
+    private Player readPlayer(Reader reader) throws IOException {
+        String username = reader.readString();
+        int totalScore = reader.readVarInt();
+        String status = reader.readString();
+        int totalWins = reader.readVarInt();
+        int totalLosses = reader.readVarInt();
+        int totalDraws = reader.readVarInt();
+        return new Player(username, totalScore, status, totalWins, totalLosses, totalDraws);
+    }
+
+    private void writeGameRoom(Writer writer, GameRoom room) {
+        writer.writeString(room.getRoomId());
+        writePlayer(writer, room.getHost());
+        writer.writeVarInt(room.getCardCount());
+        writer.writeVarInt(room.getMaxPlayers());
+        writer.writeString(room.getStatus());
+
+        List<Player> players = room.getPlayers();
+        writer.writeLength(players.size());
+        for (Player player : players) {
+            writePlayer(writer, player);
+        }
+
+        List<String> readyPlayers = room.getReadyPlayers();
+        writer.writeLength(readyPlayers.size());
+        for (String username : readyPlayers) {
+            writer.writeString(username);
+        }
+
+        Map<String, Boolean> rematchStatus = room.getRematchStatus();
+        writer.writeLength(rematchStatus.size());
+        for (Map.Entry<String, Boolean> entry : rematchStatus.entrySet()) {
+            writer.writeString(entry.getKey());
+            writer.writeByte(entry.getValue() ? 1 : 0);
+        }
+
+        GameState gameState = room.getGameState();
+        writer.writeByte(gameState != null ? 1 : 0);
+        if (gameState != null) {
+            writeGameState(writer, gameState);
+        }
+    }
+
+    private GameRoom readGameRoom(Reader reader) throws IOException {
+        String roomId = reader.readString();
+        Player host = readPlayer(reader);
+        int cardCount = reader.readVarInt();
+        GameRoom room = new GameRoom(roomId, host, cardCount);
+        room.setMaxPlayers(reader.readVarInt());
+        room.setStatus(reader.readString());
+
+        int playerCount = reader.readLength();
+        room.getPlayers().clear();
+        for (int i = 0; i < playerCount; i++) {
+            room.getPlayers().add(readPlayer(reader));
+        }
+
+        int readyCount = reader.readLength();
+        room.getReadyPlayers().clear();
+        for (int i = 0; i < readyCount; i++) {
+            room.getReadyPlayers().add(reader.readString());
+        }
+
+        int rematchCount = reader.readLength();
+        for (int i = 0; i < rematchCount; i++) {
+            room.getRematchStatus().put(reader.readString(), reader.readByte() != 0);
+        }
+
+        if (reader.readByte() != 0) {
+            room.setGameState(readGameState(reader));
+        }
+        return room;
+    }
+
+    private void writeGameState(Writer writer, GameState state) {
+        writer.writeString(state.getRoomId());
+
+        int cardCount = state.getCardCount();
+        writer.writeLength(cardCount);
+        writer.writeBytes(state.getCardIds(), 0, cardCount);
+        writer.writeBitWords(state.getFlippedWords(), cardCount);
+        writer.writeBitWords(state.getMatchedWords(), cardCount);
+
+        writer.writeLength(state.getSeatCount());
+        for (int i = 0; i < state.getSeatCount(); i++) {
+            writer.writeString(state.getSeatUsername(i));
+            writer.writeVarInt(state.getSeatScore(i));
+        }
+
+        writer.writeString(state.getCurrentPlayerUsername());
+        writer.writeString(state.getGameStatus());
+        writer.writeString(state.getMessage());
+        writer.writeLong(state.getTurnStartTime());
+        writer.writeVarInt(state.getTurnDuration());
+        writer.writeVarInt(state.getVersion());
+    }
+
+    private GameState readGameState(Reader reader) throws IOException {
+        String roomId = reader.readString();
+
+        byte[] cards = reader.readBytes(reader.readLength());
+        long[] flipped = reader.readBitWords(cards.length);
+        long[] matched = reader.readBitWords(cards.length);
+
+        int seatCount = reader.readLength();
+        List<String> seats = new ArrayList<>(seatCount);
+        int[] scores = new int[seatCount];
+        for (int i = 0; i < seatCount; i++) {
+            seats.add(reader.readString());
+            scores[i] = reader.readVarInt();
+        }
+
+        GameState state = new GameState(roomId, cards, seats);
+        state.setCardBits(flipped, matched);
+        for (int i = 0; i < seatCount; i++) {
+            state.setScore(seats.get(i), scores[i]);
+        }
+        state.setCurrentPlayerUsername(reader.readString());
+        state.setGameStatus(reader.readString());
+        state.setMessage(reader.readString());
+        state.setTurnStartTime(reader.readLong());
+        state.setTurnDuration(reader.readVarInt());
+        state.setVersion(reader.readVarInt());
+        return state;
+    }
+
+    private void writeGameDelta(Writer writer, GameDelta delta) {
+        writer.writeString(delta.getRoomId());
+        writer.writeVarInt(delta.getVersion());
+        writeIndices(writer, delta.getFlippedCards());
+        writeIndices(writer, delta.getUnflippedCards());
+        writeIndices(writer, delta.getMatchedCards());
+        writer.writeString(delta.getScoreUsername());
+        writer.writeVarInt(delta.getScore());
+        writer.writeString(delta.getCurrentPlayerUsername());
+        writer.writeString(delta.getMessage());
+        writer.writeLong(delta.getTurnStartTime());
+        writer.writeVarInt(delta.getTurnDuration());
+    }
+
+    private GameDelta readGameDelta(Reader reader) throws IOException {
+        GameDelta delta = new GameDelta(reader.readString(), reader.readVarInt());
+        for (int index : readIndices(reader)) {
+            delta.addFlipped(index);
+        }
+        for (int index : readIndices(reader)) {
+            delta.addUnflipped(index);
+        }
+        for (int index : readIndices(reader)) {
+            delta.addMatched(index);
+        }
+        String scoreUsername = reader.readString();
+        int score = reader.readVarInt();
+        if (scoreUsername != null) {
+            delta.setScore(scoreUsername, score);
+        }
+        String currentPlayer = reader.readString();
+        String message = reader.readString();
+        long turnStartTime = reader.readLong();
+        delta.setTurn(currentPlayer, message, turnStartTime, reader.readVarInt());
+        return delta;
+    }
+
+    // Indices are plain varints, not lengths; a high index is not bounded by the bytes left in the frame.
+    private void writeIndices(Writer writer, int[] indices) {
+        writer.writeLength(indices.length);
+        for (int index : indices) {
+            writer.writeVarInt(index);
+        }
+    }
+
+    private int[] readIndices(Reader reader) throws IOException {
+        int[] indices = new int[reader.readLength()];
+        for (int i = 0; i < indices.length; i++) {
+            int index = reader.readVarInt();
+            if (index < 0 || index >= GameRoom.MAX_CARD_COUNT) {
+                throw new IOException("Invalid card index: " + index);
+            }
+            indices[i] = index;
+        }
+        return indices;
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int size;
+
+        Writer(int initialCapacity) {
+            buffer = new byte[initialCapacity];
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        void writeRawVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeLength(int length) {
+            writeRawVarInt(length);
+        }
+
+        void writeVarInt(int value) {
+            writeRawVarInt((value << 1) ^ (value >> 31));
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        // Length 0 marks null; otherwise the UTF-8 byte count plus one.
+        void writeString(String value) {
+            if (value == null) {
+                writeRawVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeRawVarInt(bytes.length + 1);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        // The first count bits of the words, eight to a byte.
+        void writeBitWords(long[] words, int count) {
+            ensure((count + 7) / 8);
+            for (int i = 0; i < count; i += 8) {
+                buffer[size++] = (byte) (words[i >>> 6] >>> (i & 63));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private final int limit;
+        private int position;
+
+        Reader(byte[] data, int offset, int length) {
+            this.data = data;
+            this.position = offset;
+            this.limit = offset + length;
+        }
+
+        private void require(int count) throws IOException {
+            if (count < 0 || position + count > limit) {
+                throw new IOException("Truncated command frame");
+            }
+        }
+
+        byte readByte() throws IOException {
+            require(1);
+            return data[position++];
+        }
+
+        int skip(int count) throws IOException {
+            require(count);
+            int start = position;
+            position += count;
+            return start;
+        }
+
+        int readRawVarInt() throws IOException {
+            int result = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = readByte();
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        int readVarInt() throws IOException {
+            int raw = readRawVarInt();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        int readLength() throws IOException {
+            int length = readRawVarInt();
+            if (length < 0 || length > limit - position) {
+                throw new IOException("Invalid length: " + length);
+            }
+            return length;
+        }
+
+        long readLong() throws IOException {
+            require(8);
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (data[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        String readString() throws IOException {
+            int encoded = readRawVarInt();
+            if (encoded == 0) {
+                return null;
+            }
+            int length = encoded - 1;
+            int start = skip(length);
+            return new String(data, start, length, StandardCharsets.UTF_8);
+        }
+
+        byte[] readBytes(int count) throws IOException {
+            int start = skip(count);
+            return Arrays.copyOfRange(data, start, start + count);
+        }
+
+        long[] readBitWords(int count) throws IOException {
+            require((count + 7) / 8);
+            long[] words = new long[(count + 63) / 64];
+            for (int i = 0; i < count; i += 8) {
+                words[i >>> 6] |= (data[position++] & 0xFFL) << (i & 63);
+            }
+            return words;
+        }
+    }
+}
@@ -1,18 +1,28 @@
 package com.matchinggame.tcp.control;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.Socket;
 import com.matchinggame.tcp.model.Command;
 import com.matchinggame.tcp.view.ClientView;
 import javax.swing.SwingUtilities;
 
 public class ClientControl {
-    private Socket socket;
-    private ObjectOutputStream oos;
-    private ObjectInputStream ois;
+    private volatile Socket socket;
+    private volatile DataOutputStream out;
+    private volatile DataInputStream in;
     private ClientView clientView;
+    private volatile CommandCodec codec = SerializedCommandCodec.INSTANCE;
+    private volatile boolean compression = false;
+    private final Object sendLock = new Object();
+
+    // Issued by the server after login; lets a dropped connection rejoin a running game.
+    private volatile String sessionUsername;
+    private volatile String sessionToken;
+    private final int resumeWindowMs = Integer.getInteger("matchinggame.resume.graceMs", 30000);
 
     private final String SERVER_IP = "192.168.100.209"; 
     private final int PORT = 9999;
@@ -27,11 +37,8 @@ public class ClientControl {
 
     public boolean connect() {
         try {
-            socket = new Socket(SERVER_IP, PORT);
-            oos = new ObjectOutputStream(socket.getOutputStream());
-            ois = new ObjectInputStream(socket.getInputStream());
-
-            new ServerListener().start();
+            openConnection();
+            new ServerListener(in).start();
             return true;
         } catch (IOException e) {
             SwingUtilities.invokeLater(() -> 
@@ -41,23 +48,73 @@ public class ClientControl {
         }
     }
 
+    private void openConnection() throws IOException {
+        socket = new Socket(SERVER_IP, PORT);
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+        CommandCodec preferred = FrameCodec.codecForName(System.getProperty("matchinggame.codec"));
+        boolean offerCompression = Boolean.parseBoolean(System.getProperty("matchinggame.compression", "true"));
+        out.write(FrameCodec.negotiationByte(preferred, offerCompression));
+        out.flush();
+        int accepted = in.read();
+        if (accepted < 0) {
+            throw new IOException("Server closed the connection during codec negotiation.");
+        }
+        codec = FrameCodec.codecForId(accepted);
+        compression = FrameCodec.hasCompression(accepted);
+
+        // The server pings every interval, so this much silence means the connection is gone.
+        int heartbeatMs = Integer.getInteger("matchinggame.heartbeat.intervalMs", 5000);
+        int maxMissed = Integer.getInteger("matchinggame.heartbeat.maxMissed", 3);
+        if (heartbeatMs > 0) {
+            socket.setSoTimeout(heartbeatMs * (maxMissed + 1));
+        }
+    }
+
+    // Keeps trying for as long as the server holds the session, then gives up.
+    private boolean resumeSession() {
+        String username = sessionUsername;
+        String token = sessionToken;
+        long deadline = System.currentTimeMillis() + resumeWindowMs;
+        while (token != null && System.currentTimeMillis() < deadline) {
+            try {
+                openConnection();
+                new ServerListener(in).start();
+                sendCommand(new Command(Command.Type.RESUME, username, token));
+                return true;
+            } catch (IOException e) {
+                closeConnection();
+            }
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
     public void sendCommand(Command command) {
-        if (oos == null) return;
+        if (out == null) return;
         try {
-            oos.writeObject(command);
-            oos.flush();
+            byte[] payload = codec.encode(command);
+            synchronized (sendLock) {
+                FrameCodec.writeFrame(out, payload, compression);
+            }
         } catch (IOException e) {
-            SwingUtilities.invokeLater(() -> 
-                clientView.logError("Send Error: Connection lost.")
-            );
+            if (sessionToken == null) {
+                SwingUtilities.invokeLater(() -> 
+                    clientView.logError("Send Error: Connection lost.")
+                );
+            }
             closeConnection();
         }
     }
 
     private void closeConnection() {
         try {
-            if (ois != null) ois.close();
-            if (oos != null) oos.close();
             if (socket != null) socket.close();
         } catch (IOException e) {
             e.printStackTrace();
@@ -65,11 +122,30 @@ public class ClientControl {
     }
 
     private class ServerListener extends Thread {
+        private final DataInputStream in;
+
+        ServerListener(DataInputStream in) {
+            this.in = in;
+        }
+
         @Override
         public void run() {
             try {
-                while (socket.isConnected()) {
-                    Command receivedCommand = (Command) ois.readObject();
+                while (true) {
+                    byte[] frame = FrameCodec.readFrame(in);
+                    Command receivedCommand = codec.decode(frame, 0, frame.length);
+                    if (receivedCommand.getType() == Command.Type.PING) {
+                        sendCommand(new Command(Command.Type.PONG, null, receivedCommand.getData()));
+                        continue;
+                    }
+                    if (receivedCommand.getType() == Command.Type.SESSION_TOKEN) {
+                        sessionUsername = receivedCommand.getUsername();
+                        sessionToken = (String) receivedCommand.getData();
+                        continue;
+                    }
+                    if (receivedCommand.getType() == Command.Type.RESUME_FAILED) {
+                        sessionToken = null;
+                    }
                     
                     SwingUtilities.invokeLater(new Runnable() {
                         @Override
@@ -79,15 +155,13 @@ public class ClientControl {
                     });
                 }
             } catch (IOException e) {
-                SwingUtilities.invokeLater(() -> 
-                    clientView.logError("Server has closed the connection.")
-                );
-            } catch (ClassNotFoundException e) {
-                SwingUtilities.invokeLater(() -> 
-                    clientView.logError("Error receiving Command object.")
-                );
-            } finally {
                 closeConnection();
+                if (!resumeSession()) {
+                    sessionToken = null;
+                    SwingUtilities.invokeLater(() -> 
+                        clientView.logError("Server has closed the connection.")
+                    );
+                }
             }
         }
     }
@@ -1,10 +1,7 @@
 package com.matchinggame.tcp.control;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 
 import com.matchinggame.tcp.model.Command;
 import com.matchinggame.tcp.model.Command.Type;
@@ -12,66 +9,69 @@ import com.matchinggame.tcp.model.FlipData;
 import com.matchinggame.tcp.model.InviteData;
 import com.matchinggame.tcp.model.Player;
 
-public class ClientHandler extends Thread {
-    private Socket clientSocket;
-    private ObjectInputStream ois;
-    private ObjectOutputStream oos;
-    private ServerControl serverControl;
-    private Player player;
-    private volatile boolean isClosing = false;
+public abstract class ClientHandler {
+    private static final int MAX_QUEUED_FRAMES = Integer.getInteger("matchinggame.outbound.maxFrames", 1024);
+    private static final long HIGH_WATERMARK = Long.getLong("matchinggame.outbound.highWatermark", 256 * 1024);
+    private static final long LOW_WATERMARK = Long.getLong("matchinggame.outbound.lowWatermark", 64 * 1024);
+    private static final long SLOW_GRACE_MS = Long.getLong("matchinggame.outbound.graceMs", 10000);
+    private static final boolean COMPRESSION_ENABLED =
+            Boolean.parseBoolean(System.getProperty("matchinggame.compression", "true"));
 
-    public ClientHandler(Socket socket, ServerControl serverControl) {
-        this.clientSocket = socket;
+    protected final ServerControl serverControl;
+    private volatile Player player;
+    protected volatile boolean isClosing = false;
+    private final Object closeLock = new Object();
+    protected volatile boolean closeWhenDrained = false;
+    protected volatile CommandCodec codec = SerializedCommandCodec.INSTANCE;
+    protected volatile boolean compression = false;
+    protected final OutboundQueue outbound = new OutboundQueue(MAX_QUEUED_FRAMES);
+
+    // Set above the high watermark, cleared below the low one. Only touched under the lobby lock
+    // or by the scheduler sweep, apart from enqueue raising it.
+    private volatile boolean behind = false;
+    private volatile boolean lobbyResyncPending = false;
+    private volatile long overHighSince = 0;
+
+    // Nothing framed may be sent before the negotiation reply, so heartbeats wait for it.
+    protected volatile boolean negotiated = false;
+    private volatile int missedHeartbeats = 0;
+    private volatile int pingSequence = -1;
+    private volatile long pingSentNanos;
+    private volatile double rttMillis = -1;
+
+    // Set when a resumed connection took this one's session over.
+    private volatile boolean detached = false;
+
+    // The leaderboard page this client last asked for; changed under the lobby lock.
+    private volatile LeaderboardSubscription leaderboardSubscription;
+
+    protected ClientHandler(ServerControl serverControl) {
         this.serverControl = serverControl;
-        try {
-            oos = new ObjectOutputStream(clientSocket.getOutputStream());
-            ois = new ObjectInputStream(clientSocket.getInputStream());
-        } catch (IOException e) {
-            e.printStackTrace();
-            closeConnection();
-        }
     }
 
-    @Override
-    public void run() {
-        try {
-            while (clientSocket.isConnected() && !isClosing) {
-                Command command = (Command) ois.readObject();
-                processCommand(command);
+    protected void processCommand(Command command) {
+        missedHeartbeats = 0;
+        if (command.getType() == Type.PONG) {
+            onPong((Integer) command.getData());
+            return;
+        }
+
+        if (command.getType() == Type.RESUME) {
+            if (player == null) {
+                serverControl.handleResume(this, command.getUsername(), (String) command.getData());
             }
-        } catch (IOException e) {
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
-        } finally {
-            closeConnection();
+            return;
         }
-    }
 
-    private void processCommand(Command command) {
         if (command.getType() == Type.LOGIN) {
             String tempUsername = (String) command.getData();
-            
-            if (serverControl.isUserLoggedIn(tempUsername)) {
-                String errorMsg = "LOGIN ERROR: " + clientSocket.getInetAddress().getHostAddress() + " - Username already exists: " + tempUsername;
-                serverControl.logError(errorMsg); 
-                sendMessage(new Command(Type.LOGIN, "SERVER", "Error: Account " + tempUsername + " is already logged in."));
-                closeConnection();
-                return;
-            }
-            
-            this.player = serverControl.findOrCreatePlayer(tempUsername);
-            serverControl.addPlayer(this.player); 
-
-            ArrayList<Player> playerList = serverControl.getOnlinePlayers();
-            sendMessage(new Command(Type.LOGIN_SUCCESS, "SERVER", playerList));
-            
-            serverControl.broadcastPlayerList();
+            runBlocking(() -> login(tempUsername));
             return;
         } 
         
         if (player == null) {
             sendMessage(new Command(Type.LOGIN, "SERVER", "Error: Please login first."));
-            closeConnection();
+            closeAfterFlush();
             return;
         }
 
@@ -123,6 +123,10 @@ public class ClientHandler extends Thread {
                 FlipData flipData = (FlipData) command.getData();
                 serverControl.handleFlipCard(this, flipData);
                 break;
+
+            case REQUEST_GAME_STATE:
+                serverControl.handleRequestGameState(this);
+                break;
             
             case QUIT_GAME:
                 serverControl.handleQuitGame(this);
@@ -138,7 +142,13 @@ public class ClientHandler extends Thread {
                 break;
             
             case GET_MATCH_HISTORY:
-                serverControl.handleGetMatchHistory(this);
+                runBlocking(() -> serverControl.handleGetMatchHistory(this));
+                break;
+            
+            case GET_LEADERBOARD_TOP:
+            case GET_LEADERBOARD_PAGE:
+            case GET_LEADERBOARD_AROUND_ME:
+                serverControl.handleLeaderboardQuery(this, command);
                 break;
                 
             default:
@@ -147,32 +157,208 @@ public class ClientHandler extends Thread {
         }
     }
 
+    private void login(String tempUsername) {
+        serverControl.releaseSuspendedSession(tempUsername);
+        
+        if (serverControl.isUserLoggedIn(tempUsername) || !serverControl.claimUsername(tempUsername, this)) {
+            String errorMsg = "LOGIN ERROR: " + getRemoteAddress() + " - Username already exists: " + tempUsername;
+            serverControl.logError(errorMsg); 
+            sendMessage(new Command(Type.LOGIN, "SERVER", "Error: Account " + tempUsername + " is already logged in."));
+            closeAfterFlush();
+            return;
+        }
+        
+        Player found = serverControl.findOrCreatePlayer(tempUsername);
+        // Login runs off the connection's thread. A close either comes first and
+        // leaves the claim for us to drop, or sees the player and logs it out.
+        synchronized (closeLock) {
+            if (isClosing) {
+                serverControl.releaseUsername(tempUsername, this);
+                return;
+            }
+            this.player = found;
+            serverControl.addPlayer(found);
+        }
+        serverControl.announceLogin(found);
+        serverControl.sendLobbySnapshot(this);
+        
+        serverControl.broadcastPlayerList();
+    }
+
+    // Runs a command that waits on the database. A connection with its own
+    // reader thread can block it; the NIO handler moves the work off the selector.
+    protected void runBlocking(Runnable task) {
+        task.run();
+    }
+
+    // Encodes on the caller's thread and hands the frame to the writer; never blocks on the socket.
     public void sendMessage(Object object) {
+        sendEncoded(new EncodedCommand((Command) object));
+    }
+
+    public void sendEncoded(EncodedCommand command) {
         if (isClosing) return;
         try {
-            oos.reset();
-            oos.writeObject(object);
-            oos.flush();
+            enqueue(command.frameFor(codec, compression));
         } catch (IOException e) {
-            serverControl.logError("Failed to send message to " + (player != null ? player.getUsername() : "unauthenticated client"));
+            sendFailed();
+        }
+    }
+
+    // Lobby events are the first thing dropped for a client that is behind; it gets
+    // a fresh snapshot instead once it catches up. Called under the lobby lock.
+    void sendLobby(EncodedCommand command) {
+        if (behind) {
+            lobbyResyncPending = true;
+            serverControl.recordLobbyDrop();
+            return;
+        }
+        sendEncoded(command);
+    }
+
+    protected void enqueue(ByteBuffer frame) {
+        if (!outbound.offer(frame)) {
+            serverControl.logError("Outbound queue full (" + outbound.getCapacity() + " frames) for " + describe() + ". Closing connection.");
+            serverControl.recordEviction();
+            closeConnection();
+            return;
+        }
+        if (outbound.getQueuedBytes() > HIGH_WATERMARK) {
+            behind = true;
+        }
+        requestFlush();
+    }
+
+    // Called periodically on the server scheduler.
+    void checkBackpressure(long now) {
+        if (isClosing) return;
+        long queued = outbound.getQueuedBytes();
+        if (queued > HIGH_WATERMARK) {
+            behind = true;
+            if (overHighSince == 0) {
+                overHighSince = now;
+            } else if (now - overHighSince >= SLOW_GRACE_MS) {
+                serverControl.logError("Evicting slow client " + describe() + ": " + queued + " bytes queued for "
+                        + (now - overHighSince) + " ms.");
+                serverControl.recordEviction();
+                closeConnection();
+            }
+            return;
+        }
+        overHighSince = 0;
+        if (behind && queued <= LOW_WATERMARK) {
+            serverControl.resyncLobby(this);
+        }
+    }
+
+    // Called on the server scheduler with one PING shared by every connection.
+    // Any inbound frame counts as a sign of life, not just the PONG.
+    void heartbeat(EncodedCommand ping, int sequence, int maxMissed) {
+        if (isClosing || !negotiated) return;
+        if (missedHeartbeats >= maxMissed) {
+            serverControl.logError("No heartbeat from " + describe() + " (" + getRemoteAddress() + ") after "
+                    + missedHeartbeats + " pings. Closing connection.");
+            serverControl.recordReaped();
             closeConnection();
+            return;
         }
+        missedHeartbeats++;
+        pingSequence = sequence;
+        pingSentNanos = System.nanoTime();
+        sendEncoded(ping);
     }
 
-    public void closeConnection() {
+    private void onPong(int sequence) {
+        if (sequence != pingSequence) return;
+        double sample = (System.nanoTime() - pingSentNanos) / 1_000_000.0;
+        // Same smoothing as TCP's SRTT.
+        rttMillis = rttMillis < 0 ? sample : rttMillis * 0.875 + sample * 0.125;
+    }
+
+    public double getRttMillis() {
+        return rttMillis;
+    }
+
+    // Returns whether lobby events were dropped since the client fell behind. Called under the lobby lock.
+    boolean catchUp() {
+        behind = false;
+        boolean resync = lobbyResyncPending;
+        lobbyResyncPending = false;
+        return resync;
+    }
+
+    // Applies the client's negotiation byte and queues the reply.
+    protected void negotiate(int preferred) {
+        codec = FrameCodec.codecForId(preferred);
+        compression = COMPRESSION_ENABLED && FrameCodec.hasCompression(preferred);
+        enqueue(ByteBuffer.wrap(new byte[] { (byte) FrameCodec.negotiationByte(codec, compression) }));
+        missedHeartbeats = 0;
+        negotiated = true;
+    }
+
+    // Asks the transport to drain the outbound queue on its writer.
+    protected abstract void requestFlush();
+
+    public void closeAfterFlush() {
+        closeWhenDrained = true;
+        requestFlush();
+    }
+
+    public int getQueueDepth() {
+        return outbound.size();
+    }
+
+    public long getQueuedBytes() {
+        return outbound.getQueuedBytes();
+    }
+
+    public abstract String getRemoteAddress();
+
+    protected abstract void closeTransport();
+
+    protected void sendFailed() {
         if (isClosing) return;
-        isClosing = true;
-        serverControl.removeHandler(this); 
-        try {
-            if (ois != null) ois.close();
-            if (oos != null) oos.close();
-            if (clientSocket != null) clientSocket.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+        serverControl.logError("Failed to send message to " + describe());
+        closeConnection();
+    }
+
+    protected String describe() {
+        return player != null ? player.getUsername() : "unauthenticated client";
+    }
+
+    public void closeConnection() {
+        synchronized (closeLock) {
+            if (isClosing) return;
+            isClosing = true;
         }
+        serverControl.removeHandler(this); 
+        outbound.clear();
+        closeTransport();
     }
 
     public Player getPlayer() {
         return player;
     }
+
+    void resume(Player player) {
+        this.player = player;
+    }
+
+    // Closes the connection without the disconnect cleanup; the session lives on elsewhere.
+    void detach() {
+        detached = true;
+        closeConnection();
+    }
+
+    public boolean isDetached() {
+        return detached;
+    }
+
+    LeaderboardSubscription getLeaderboardSubscription() {
+        return leaderboardSubscription;
+    }
+
+    void setLeaderboardSubscription(LeaderboardSubscription leaderboardSubscription) {
+        this.leaderboardSubscription = leaderboardSubscription;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.matchinggame.tcp.control;
+
+import java.io.IOException;
+
+import com.matchinggame.tcp.model.Command;
+
+public interface CommandCodec {
+
+    byte getId();
+
+    byte[] encode(Command command) throws IOException;
+
+    Command decode(byte[] data, int offset, int length) throws IOException;
+}
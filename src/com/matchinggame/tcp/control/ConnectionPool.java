@@ -0,0 +1,318 @@
+package com.matchinggame.tcp.control;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// A bounded pool of JDBC connections for any driver URL. Idle connections are
+// handed out newest first, so the ones left at the old end are the ones that
+// go unused, and a background sweep closes them once past the idle timeout. A
+// connection that sat idle for longer than the validation window is checked
+// before it is handed out. A statement failure with a connection-class SQLState
+// closes the connection when it comes back; any other failure has it checked
+// before it goes back to the idle list. Each connection keeps its prepared
+// statements, so a query is prepared once per connection instead of on every call.
+public class ConnectionPool {
+    private static final int MAX_SIZE = Integer.getInteger("matchinggame.db.poolSize", 8);
+    private static final long WAIT_MS = Long.getLong("matchinggame.db.waitMs", 5000);
+    private static final long IDLE_TIMEOUT_MS = Long.getLong("matchinggame.db.idleTimeoutMs", 10 * 60 * 1000);
+    private static final long VALIDATE_AFTER_MS = Long.getLong("matchinggame.db.validateAfterMs", 1000);
+    private static final int VALIDATION_TIMEOUT_SEC = 2;
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("matchinggame.db.statementCache", 32);
+
+    // Borrowed for the length of one try-with-resources block. Statements run through
+    // the lease so a failure decides what happens to the connection on return.
+    public final class Lease implements AutoCloseable {
+        private PooledConnection pooled;
+        private boolean broken;
+        private boolean suspect;
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        // Cached statements stay open for the next borrower; close only the result sets.
+        public PreparedStatement prepare(String sql) throws SQLException {
+            if (pooled == null) {
+                throw new SQLException("Connection was already returned to the pool");
+            }
+            try {
+                return pooled.prepare(sql);
+            } catch (SQLException e) {
+                throw failed(e);
+            }
+        }
+
+        public ResultSet executeQuery(PreparedStatement stmt) throws SQLException {
+            try {
+                return stmt.executeQuery();
+            } catch (SQLException e) {
+                throw failed(e);
+            }
+        }
+
+        public int executeUpdate(PreparedStatement stmt) throws SQLException {
+            try {
+                return stmt.executeUpdate();
+            } catch (SQLException e) {
+                throw failed(e);
+            }
+        }
+
+        private SQLException failed(SQLException e) {
+            if (isFatal(e)) {
+                broken = true;
+            } else {
+                suspect = true;
+            }
+            return e;
+        }
+
+        @Override
+        public void close() {
+            if (pooled != null) {
+                PooledConnection returned = pooled;
+                pooled = null;
+                release(returned, broken, suspect);
+            }
+        }
+    }
+
+    private final class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= STATEMENT_CACHE_SIZE) return false;
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+        private long lastUsed = System.currentTimeMillis();
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement stmt = statements.get(sql);
+            if (stmt != null && !stmt.isClosed()) {
+                statementHits.increment();
+                stmt.clearParameters();
+                return stmt;
+            }
+            statementMisses.increment();
+            stmt = connection.prepareStatement(sql);
+            statements.put(sql, stmt);
+            return stmt;
+        }
+
+        boolean isValid() {
+            try {
+                return connection.isValid(VALIDATION_TIMEOUT_SEC);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        boolean isClosed() {
+            try {
+                return connection.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        }
+
+        void close() {
+            for (PreparedStatement stmt : statements.values()) {
+                closeQuietly(stmt);
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // Already broken; nothing left to release.
+            }
+            open.decrementAndGet();
+        }
+    }
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private final Semaphore permits = new Semaphore(MAX_SIZE, true);
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "db-pool-evictor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ConnectionPool(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        long sweepMs = Math.max(1000, IDLE_TIMEOUT_MS / 2);
+        evictor.scheduleWithFixedDelay(() -> evictIdle(System.currentTimeMillis()), sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Waits up to the configured time for a free slot when all connections are out.
+    public Lease borrow() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(WAIT_MS, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTimeoutException("No database connection free after " + WAIT_MS + " ms (" + MAX_SIZE + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        long waited = System.nanoTime() - start;
+        borrows.increment();
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        try {
+            evictIdle(System.currentTimeMillis());
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+                open.incrementAndGet();
+                opened.increment();
+            }
+            active.incrementAndGet();
+            return new Lease(pooled);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        long now = System.currentTimeMillis();
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) return null;
+            if (now - pooled.lastUsed < VALIDATE_AFTER_MS || pooled.isValid()) return pooled;
+            invalid.increment();
+            pooled.close();
+        }
+    }
+
+    private void release(PooledConnection pooled, boolean fatal, boolean suspect) {
+        active.decrementAndGet();
+        try {
+            if (fatal || pooled.isClosed() || (suspect && !pooled.isValid())) {
+                discarded.increment();
+                pooled.close();
+            } else {
+                pooled.lastUsed = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.addFirst(pooled);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    // The least recently used connections sit at the back.
+    private void evictIdle(long now) {
+        while (true) {
+            PooledConnection stale;
+            synchronized (idle) {
+                stale = idle.peekLast();
+                if (stale == null || now - stale.lastUsed < IDLE_TIMEOUT_MS) return;
+                idle.pollLast();
+            }
+            evicted.increment();
+            stale.close();
+        }
+    }
+
+    // SQLState class 08 is a connection exception; the connection cannot be trusted again.
+    private static boolean isFatal(SQLException e) {
+        String state = e.getSQLState();
+        return (state != null && state.startsWith("08"))
+                || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLRecoverableException;
+    }
+
+    // Closes the idle connections; leased ones are closed as they come back.
+    public void close() {
+        evictor.shutdown();
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) return;
+            pooled.close();
+        }
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public String describeStats() {
+        long count = borrows.sum();
+        long hits = statementHits.sum();
+        long prepared = hits + statementMisses.sum();
+        return String.format("db pool: %d active, %d idle, %d open (max %d), %d borrows, avg wait %.2f ms, max wait %.2f ms, "
+                + "%d timeouts, %d opened, %d evicted, %d failed validation, %d discarded after errors, statements %.1f%% cached",
+                getActiveCount(), getIdleCount(), open.get(), MAX_SIZE, count,
+                count == 0 ? 0.0 : waitNanos.sum() / 1e6 / count, maxWaitNanos.get() / 1e6,
+                timeouts.sum(), opened.sum(), evicted.sum(), invalid.sum(), discarded.sum(),
+                prepared == 0 ? 0.0 : hits * 100.0 / prepared);
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            // The connection is going away with it.
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package com.matchinggame.tcp.control;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -11,28 +9,33 @@ import com.matchinggame.tcp.model.MatchHistoryEntry;
 import com.matchinggame.tcp.model.Player;
 
 public class DatabaseManager {
-    private static final String URL = "jdbc:mysql://localhost:3306/matching_game?useSSL=false&serverTimezone=Asia/Ho_Chi_Minh"; 
-    private static final String USER = "root";
-    private static final String PASSWORD = "";
+    // Any JDBC URL works, e.g. an embedded database for local runs; MySQL is the default.
+    private static final String URL = System.getProperty("matchinggame.db.url",
+            "jdbc:mysql://localhost:3306/matching_game?useSSL=false&serverTimezone=Asia/Ho_Chi_Minh"); 
+    private static final String USER = System.getProperty("matchinggame.db.user", "root");
+    private static final String PASSWORD = System.getProperty("matchinggame.db.password", "");
+
+    private final ConnectionPool pool = new ConnectionPool(URL, USER, PASSWORD);
 
     public DatabaseManager() {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            System.err.println("MySQL JDBC Driver not found. Make sure you added the JAR to the classpath.");
+        if (URL.startsWith("jdbc:mysql:")) {
+            try {
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                System.err.println("MySQL JDBC Driver not found. Make sure you added the JAR to the classpath.");
+            }
         }
     }
 
-    private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+    public String describePoolStats() {
+        return pool.describeStats();
     }
 
     public List<Player> loadAllPlayers() {
         List<Player> allPlayers = new ArrayList<>();
         String sql = "SELECT username, total_score, total_wins, total_losses, total_draws FROM player";
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+        try (ConnectionPool.Lease lease = pool.borrow();
+             ResultSet rs = lease.executeQuery(lease.prepare(sql))) {
             
             while (rs.next()) {
                 Player player = new Player(
@@ -53,10 +56,10 @@ public class DatabaseManager {
 
     public Player getPlayerByUsername(String username) {
         String sql = "SELECT username, total_score, total_wins, total_losses, total_draws FROM player WHERE username = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool.borrow()) {
+            PreparedStatement stmt = lease.prepare(sql);
             stmt.setString(1, username);
-            try (ResultSet rs = stmt.executeQuery()) {
+            try (ResultSet rs = lease.executeQuery(stmt)) {
                 if (rs.next()) {
                     return new Player(
                         rs.getString("username"), 
@@ -76,14 +79,14 @@ public class DatabaseManager {
 
     public void insertPlayer(Player player) {
         String sql = "INSERT INTO player (username, total_score, total_wins, total_losses, total_draws) VALUES (?, ?, ?, ?, ?)";
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool.borrow()) {
+            PreparedStatement stmt = lease.prepare(sql);
             stmt.setString(1, player.getUsername());
             stmt.setInt(2, player.getTotalScore());
             stmt.setInt(3, player.getTotalWins());
             stmt.setInt(4, player.getTotalLosses());
             stmt.setInt(5, player.getTotalDraws());
-            stmt.executeUpdate();
+            lease.executeUpdate(stmt);
         } catch (SQLException e) {
             System.err.println("Error inserting player: " + player.getUsername());
         }
@@ -91,14 +94,14 @@ public class DatabaseManager {
     
     public void updatePlayerStats(Player player) {
         String sql = "UPDATE player SET total_score = ?, total_wins = ?, total_losses = ?, total_draws = ? WHERE username = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool.borrow()) {
+            PreparedStatement stmt = lease.prepare(sql);
             stmt.setInt(1, player.getTotalScore());
             stmt.setInt(2, player.getTotalWins());
             stmt.setInt(3, player.getTotalLosses());
             stmt.setInt(4, player.getTotalDraws());
             stmt.setString(5, player.getUsername());
-            stmt.executeUpdate();
+            lease.executeUpdate(stmt);
         } catch (SQLException e) {
             System.err.println("Error updating player: " + player.getUsername());
         }
@@ -106,15 +109,15 @@ public class DatabaseManager {
     
     public void insertMatchHistory(String p1, String p2, int p1Score, int p2Score, String winner, boolean isDraw) {
         String sql = "INSERT INTO match_history (player_one, player_two, player_one_score, player_two_score, winner_username, is_draw) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool.borrow()) {
+            PreparedStatement stmt = lease.prepare(sql);
             stmt.setString(1, p1);
             stmt.setString(2, p2);
             stmt.setInt(3, p1Score);
             stmt.setInt(4, p2Score);
             stmt.setString(5, winner);
             stmt.setBoolean(6, isDraw);
-            stmt.executeUpdate();
+            lease.executeUpdate(stmt);
         } catch (SQLException e) {
             System.err.println("Error inserting match history: " + e.getMessage());
         }
@@ -124,12 +127,12 @@ public class DatabaseManager {
         List<MatchHistoryEntry> history = new ArrayList<>();
         String sql = "SELECT * FROM match_history WHERE player_one = ? OR player_two = ? ORDER BY start_time DESC LIMIT 20";
         
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool.borrow()) {
+            PreparedStatement stmt = lease.prepare(sql);
             stmt.setString(1, username);
             stmt.setString(2, username);
             
-            try (ResultSet rs = stmt.executeQuery()) {
+            try (ResultSet rs = lease.executeQuery(stmt)) {
                 while (rs.next()) {
                     String p1 = rs.getString("player_one");
                     String p2 = rs.getString("player_two");
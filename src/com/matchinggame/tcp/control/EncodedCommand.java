@@ -0,0 +1,36 @@
+package com.matchinggame.tcp.control;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.matchinggame.tcp.model.Command;
+
+// A Command that is encoded at most once per codec and then shared by every
+// recipient of a broadcast. Each recipient gets its own ByteBuffer view over
+// the same immutable frame bytes. Compressed frames are cached separately, so
+// a large broadcast is also deflated only once.
+public class EncodedCommand {
+    private final Command command;
+    private final AtomicReferenceArray<byte[]> frames = new AtomicReferenceArray<>(4);
+
+    public EncodedCommand(Command command) {
+        this.command = command;
+    }
+
+    public Command getCommand() {
+        return command;
+    }
+
+    public ByteBuffer frameFor(CommandCodec codec, boolean compression) throws IOException {
+        int slot = codec.getId() * 2 + (compression ? 1 : 0);
+        byte[] frame = frames.get(slot);
+        if (frame == null) {
+            frame = FrameCodec.frame(codec.encode(command), compression);
+            if (!frames.compareAndSet(slot, null, frame)) {
+                frame = frames.get(slot);
+            }
+        }
+        return ByteBuffer.wrap(frame);
+    }
+}
@@ -0,0 +1,92 @@
+package com.matchinggame.tcp.control;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Every message on the wire is a 4-byte big-endian length followed by one
+// Command encoded with the codec negotiated for the connection, so both the
+// blocking and the NIO server can cut the stream into messages without an
+// ObjectInputStream per connection.
+//
+// Negotiation happens once, right after connect: the client writes a single
+// byte with the id of the codec it prefers and the server answers with the
+// id it will actually use in both directions. The top bit of that byte offers
+// (and in the reply, accepts) compression; a frame whose length has
+// COMPRESSED_FLAG set carries a FrameCompressor payload.
+public final class FrameCodec {
+    public static final int HEADER_LENGTH = 4;
+    public static final int MAX_FRAME_LENGTH = 4 * 1024 * 1024;
+    public static final int COMPRESSED_FLAG = 0x40000000;
+    public static final int COMPRESSION_BIT = 0x80;
+
+    private FrameCodec() {
+    }
+
+    public static CommandCodec codecForId(int id) {
+        if ((id & ~COMPRESSION_BIT) == BinaryCommandCodec.ID) {
+            return BinaryCommandCodec.INSTANCE;
+        }
+        return SerializedCommandCodec.INSTANCE;
+    }
+
+    public static CommandCodec codecForName(String name) {
+        if (name != null && name.trim().equalsIgnoreCase("SERIALIZED")) {
+            return SerializedCommandCodec.INSTANCE;
+        }
+        return BinaryCommandCodec.INSTANCE;
+    }
+
+    public static int negotiationByte(CommandCodec codec, boolean compression) {
+        return codec.getId() | (compression ? COMPRESSION_BIT : 0);
+    }
+
+    public static boolean hasCompression(int negotiationByte) {
+        return (negotiationByte & COMPRESSION_BIT) != 0;
+    }
+
+    // Header plus payload, deflated when allowed and worth it.
+    public static byte[] frame(byte[] payload, boolean compression) {
+        byte[] compressed = compression ? FrameCompressor.compress(payload) : null;
+        byte[] body = compressed != null ? compressed : payload;
+        byte[] frame = new byte[HEADER_LENGTH + body.length];
+        ByteBuffer.wrap(frame)
+                .putInt(compressed != null ? body.length | COMPRESSED_FLAG : body.length)
+                .put(body);
+        return frame;
+    }
+
+    public static void writeFrame(DataOutputStream out, byte[] payload) throws IOException {
+        writeFrame(out, payload, false);
+    }
+
+    public static void writeFrame(DataOutputStream out, byte[] payload, boolean compression) throws IOException {
+        out.write(frame(payload, compression));
+        out.flush();
+    }
+
+    public static byte[] readFrame(DataInputStream in) throws IOException {
+        int header = in.readInt();
+        int length = payloadLength(header);
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return isCompressed(header) ? FrameCompressor.decompress(payload, 0, length) : payload;
+    }
+
+    public static boolean isCompressed(int header) {
+        return (header & COMPRESSED_FLAG) != 0;
+    }
+
+    public static int payloadLength(int header) throws IOException {
+        int length = header & ~COMPRESSED_FLAG;
+        checkLength(length);
+        return length;
+    }
+
+    public static void checkLength(int length) throws IOException {
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.matchinggame.tcp.control;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Deflate for payloads above a size threshold, used only on connections that
+// negotiated it. Both ends prime zlib with the same preset dictionary of
+// strings every lobby message repeats, so mid-sized lists shrink as well.
+// A compressed payload is the original length (4 bytes) and the deflate stream.
+public final class FrameCompressor {
+    public static final int THRESHOLD = Integer.getInteger("matchinggame.compression.threshold", 512);
+
+    // zlib favours matches near the end of the dictionary, so the most common strings go last.
+    private static final byte[] DICTIONARY = (
+            "com.matchinggame.tcp.model.MatchHistoryEntry com.matchinggame.tcp.model.GameState "
+            + "com.matchinggame.tcp.model.GameRoom com.matchinggame.tcp.model.RoomSummary "
+            + "com.matchinggame.tcp.model.Command com.matchinggame.tcp.model.Player "
+            + "java.util.ArrayList java.lang.Integer java.lang.String "
+            + "totalDrawstotalLossestotalWinstotalScoreusernamestatus "
+            + "WAITINGPLAYINGFINISHEDSERVERRoom-InRoomOfflineOnline")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final Queue<Deflater> DEFLATERS = new ConcurrentLinkedQueue<>();
+    private static final Queue<Inflater> INFLATERS = new ConcurrentLinkedQueue<>();
+
+    private static final LongAdder framesCompressed = new LongAdder();
+    private static final LongAdder framesSkipped = new LongAdder();
+    private static final LongAdder bytesBefore = new LongAdder();
+    private static final LongAdder bytesAfter = new LongAdder();
+    private static final LongAdder deflateNanos = new LongAdder();
+    private static final LongAdder inflateNanos = new LongAdder();
+
+    private FrameCompressor() {
+    }
+
+    // Returns null when the payload is too small or does not get smaller.
+    public static byte[] compress(byte[] payload) {
+        if (payload.length < THRESHOLD) return null;
+
+        long start = System.nanoTime();
+        Deflater deflater = DEFLATERS.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+        }
+        try {
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(payload);
+            deflater.finish();
+
+            byte[] out = new byte[payload.length];
+            ByteBuffer.wrap(out).putInt(payload.length);
+            int size = 4;
+            while (!deflater.finished() && size < out.length) {
+                size += deflater.deflate(out, size, out.length - size);
+            }
+            if (!deflater.finished()) {
+                framesSkipped.increment();
+                return null;
+            }
+
+            framesCompressed.increment();
+            bytesBefore.add(payload.length);
+            bytesAfter.add(size);
+            byte[] result = new byte[size];
+            System.arraycopy(out, 0, result, 0, size);
+            return result;
+        } finally {
+            deflater.reset();
+            DEFLATERS.offer(deflater);
+            deflateNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    public static byte[] decompress(byte[] data, int offset, int length) throws IOException {
+        if (length < 4) {
+            throw new IOException("Compressed frame too short: " + length);
+        }
+        int originalLength = ByteBuffer.wrap(data, offset, 4).getInt();
+        FrameCodec.checkLength(originalLength);
+
+        long start = System.nanoTime();
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        try {
+            inflater.setInput(data, offset + 4, length - 4);
+            byte[] result = new byte[originalLength];
+            int size = 0;
+            while (!inflater.finished()) {
+                int n = inflater.inflate(result, size, result.length - size);
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(DICTIONARY);
+                    } else if (inflater.needsInput() || size == result.length) {
+                        throw new IOException("Truncated or oversized compressed frame");
+                    }
+                }
+                size += n;
+            }
+            if (size != originalLength) {
+                throw new IOException("Compressed frame length mismatch: " + size + " != " + originalLength);
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed frame", e);
+        } finally {
+            inflater.reset();
+            INFLATERS.offer(inflater);
+            inflateNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    public static String describeStats() {
+        long before = bytesBefore.sum();
+        long after = bytesAfter.sum();
+        return String.format("compression: %d frames (%d not worth it), %d -> %d bytes (%.1f%%), deflate %d ms, inflate %d ms",
+                framesCompressed.sum(), framesSkipped.sum(), before, after,
+                before == 0 ? 100.0 : after * 100.0 / before,
+                deflateNanos.sum() / 1_000_000, inflateNanos.sum() / 1_000_000);
+    }
+}
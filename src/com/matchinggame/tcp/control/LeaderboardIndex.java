@@ -0,0 +1,230 @@
+package com.matchinggame.tcp.control;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.matchinggame.tcp.model.Player;
+
+// Every known player in leaderboard order: score, wins and draws high to low,
+// then losses low to high, then name. It is a treap that tracks subtree sizes,
+// so a stat change, a rank lookup and finding the start of a page are all
+// O(log N), and nothing is ever sorted from scratch. Every change bumps the
+// version, which tells cached snapshots they are stale.
+public class LeaderboardIndex {
+    // The stats the player was filed under, so the old position can be found after Player changes.
+    private static final class Entry {
+        private final Player player;
+        private final String username;
+        private final int score;
+        private final int wins;
+        private final int draws;
+        private final int losses;
+
+        Entry(Player player) {
+            this.player = player;
+            this.username = player.getUsername().toLowerCase();
+            this.score = player.getTotalScore();
+            this.wins = player.getTotalWins();
+            this.draws = player.getTotalDraws();
+            this.losses = player.getTotalLosses();
+        }
+
+        int compareTo(Entry other) {
+            if (score != other.score) return Integer.compare(other.score, score);
+            if (wins != other.wins) return Integer.compare(other.wins, wins);
+            if (draws != other.draws) return Integer.compare(other.draws, draws);
+            if (losses != other.losses) return Integer.compare(losses, other.losses);
+            return username.compareTo(other.username);
+        }
+    }
+
+    private static final class Node {
+        private final Entry entry;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        Node(Entry entry, int priority) {
+            this.entry = entry;
+            this.priority = priority;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Random random = new Random();
+    private final ReentrantLock lock = new ReentrantLock();
+    private Node root;
+    private int version;
+
+    // Files the player under their current stats, moving them if they were already indexed.
+    public void update(Player player) {
+        lock.lock();
+        try {
+            Entry entry = new Entry(player);
+            Entry old = entries.put(entry.username, entry);
+            if (old != null) {
+                Node[] lessAndRest = split(root, old, false);
+                Node[] sameAndGreater = split(lessAndRest[1], old, true);
+                root = merge(lessAndRest[0], sameAndGreater[1]);
+            }
+            Node[] parts = split(root, entry, false);
+            root = merge(merge(parts[0], new Node(entry, random.nextInt())), parts[1]);
+            version++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returned by the version-checked reads once the index has moved past that version.
+    public static final int STALE = Integer.MIN_VALUE;
+
+    // Version and size taken together, so the snapshot's total matches its rows.
+    public LeaderboardSnapshot snapshot() {
+        lock.lock();
+        try {
+            return new LeaderboardSnapshot(this, version, size(root));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Up to count players from the zero-based rank from, as copies of the stats they are
+    // ranked by, or null if the index is no longer at the given version. Presence is not
+    // part of the leaderboard and would go stale, so rows carry no status.
+    public List<Player> rows(int from, int count, int atVersion) {
+        lock.lock();
+        try {
+            if (version != atVersion) return null;
+            List<Entry> entries = entries(from, count);
+            List<Player> rows = new ArrayList<>(entries.size());
+            for (Entry e : entries) {
+                rows.add(new Player(e.player.getUsername(), e.score, null, e.wins, e.losses, e.draws));
+            }
+            return rows;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // In rank order from the zero-based rank from; the caller holds the lock.
+    private List<Entry> entries(int from, int count) {
+        List<Entry> result = new ArrayList<>(Math.max(0, Math.min(count, size(root) - from)));
+        if (from < 0 || count <= 0) return result;
+
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        int skip = from;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (skip < leftSize) {
+                path.push(node);
+                node = node.left;
+            } else if (skip == leftSize) {
+                path.push(node);
+                break;
+            } else {
+                skip -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        while (!path.isEmpty() && result.size() < count) {
+            node = path.pop();
+            result.add(node.entry);
+            for (Node next = node.right; next != null; next = next.left) {
+                path.push(next);
+            }
+        }
+        return result;
+    }
+
+    // Zero-based, -1 for a player who is not indexed, or STALE if the index is no longer at the given version.
+    public int rankOf(String username, int atVersion) {
+        lock.lock();
+        try {
+            if (version != atVersion) return STALE;
+            Entry entry = entries.get(username.toLowerCase());
+            if (entry == null) return -1;
+
+            int rank = 0;
+            Node node = root;
+            while (node != null) {
+                int cmp = entry.compareTo(node.entry);
+                if (cmp < 0) {
+                    node = node.left;
+                } else if (cmp > 0) {
+                    rank += size(node.left) + 1;
+                    node = node.right;
+                } else {
+                    return rank + size(node.left);
+                }
+            }
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getVersion() {
+        lock.lock();
+        try {
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size(root);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // [entries before key, the rest]; with inclusive the key itself goes left too.
+    private static Node[] split(Node node, Entry key, boolean inclusive) {
+        if (node == null) return new Node[2];
+        int cmp = node.entry.compareTo(key);
+        if (cmp < 0 || (inclusive && cmp == 0)) {
+            Node[] parts = split(node.right, key, inclusive);
+            node.right = parts[0];
+            parts[0] = resize(node);
+            return parts;
+        } else {
+            Node[] parts = split(node.left, key, inclusive);
+            node.left = parts[1];
+            parts[1] = resize(node);
+            return parts;
+        }
+    }
+
+    // Everything in left orders before everything in right.
+    private static Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return resize(left);
+        } else {
+            right.left = merge(left, right.left);
+            return resize(right);
+        }
+    }
+
+    private static Node resize(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        return node;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,78 @@
+package com.matchinggame.tcp.control;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.matchinggame.tcp.model.Command;
+import com.matchinggame.tcp.model.LeaderboardPage;
+import com.matchinggame.tcp.model.Player;
+
+// One version of the ranked table. Nothing is copied up front: a page is read
+// from the index the first time any client needs it at this version, then
+// encoded once and shared by every client looking at that page. Every read is
+// checked against the version under the index lock, so no page or rank mixes two
+// states of the table; once a stat change moves the index on, whatever was not
+// read yet is gone and the caller takes the next snapshot.
+public class LeaderboardSnapshot {
+    private static final class Page {
+        private final List<Player> rows;
+        private final EncodedCommand encoded;
+
+        Page(List<Player> rows, EncodedCommand encoded) {
+            this.rows = rows;
+            this.encoded = encoded;
+        }
+    }
+
+    private final LeaderboardIndex index;
+    private final int version;
+    private final int totalPlayers;
+    private final Map<Long, Page> pages = new ConcurrentHashMap<>();
+
+    LeaderboardSnapshot(LeaderboardIndex index, int version, int totalPlayers) {
+        this.index = index;
+        this.version = version;
+        this.totalPlayers = totalPlayers;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    // Zero-based, -1 for a player who is not ranked, or LeaderboardIndex.STALE.
+    public int rankOf(String username) {
+        return index.rankOf(username, version);
+    }
+
+    // False if the page was not read before the index moved past this version.
+    public boolean load(int from, int count) {
+        return pageFor(from, count) != null;
+    }
+
+    // Only for pages that load has returned true for.
+    public List<Player> rows(int from, int count) {
+        return pageFor(from, count).rows;
+    }
+
+    public EncodedCommand page(int from, int count) {
+        return pageFor(from, count).encoded;
+    }
+
+    private Page pageFor(int from, int count) {
+        Long key = ((long) from << 32) | count;
+        Page page = pages.get(key);
+        if (page == null) {
+            List<Player> rows = index.rows(from, count, version);
+            if (rows == null) return null;
+            rows = Collections.unmodifiableList(rows);
+            page = new Page(rows, new EncodedCommand(new Command(Command.Type.LEADERBOARD_PAGE, "SERVER",
+                    new LeaderboardPage(version, from, totalPlayers, new ArrayList<>(rows)))));
+            Page raced = pages.putIfAbsent(key, page);
+            if (raced != null) page = raced;
+        }
+        return page;
+    }
+}
@@ -0,0 +1,103 @@
+package com.matchinggame.tcp.control;
+
+import java.util.List;
+
+import com.matchinggame.tcp.model.Player;
+
+// The part of the leaderboard one client is looking at, and the page and rank
+// it was last sent. After a stat change the client is pushed its page again
+// only if a row it can see moved, and its rank only if that moved; every other
+// game costs it nothing. Only touched under the lobby lock.
+public class LeaderboardSubscription {
+    private final int from;
+    private final int count;
+    private final boolean aroundMe;
+
+    private int sentVersion = -1;
+    private int sentFrom;
+    private List<Player> sentRows;
+    private boolean rankSent;
+    private int sentRank;
+
+    private LeaderboardSubscription(int from, int count, boolean aroundMe) {
+        this.from = from;
+        this.count = count;
+        this.aroundMe = aroundMe;
+    }
+
+    public static LeaderboardSubscription window(int from, int count) {
+        return new LeaderboardSubscription(from, count, false);
+    }
+
+    // Count rows centred on the player, following them as their rank moves.
+    public static LeaderboardSubscription aroundMe(int count) {
+        return new LeaderboardSubscription(0, count, true);
+    }
+
+    public int firstRank(int myRank) {
+        return aroundMe ? Math.max(0, myRank - count / 2) : from;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean sameWindow(LeaderboardSubscription other) {
+        return from == other.from && count == other.count && aroundMe == other.aroundMe;
+    }
+
+    // True if the client was last sent this window at this version.
+    public boolean isCurrent(int version) {
+        return sentRows != null && sentVersion == version;
+    }
+
+    // True, and the page is recorded as sent, if it differs from what the client last saw.
+    public boolean pageChanged(LeaderboardSnapshot snapshot, int first) {
+        if (isCurrent(snapshot.getVersion()) && sentFrom == first) {
+            return false;
+        }
+        List<Player> rows = snapshot.rows(first, count);
+        boolean changed = sentRows == null || sentFrom != first || !sameRows(sentRows, rows);
+        sentVersion = snapshot.getVersion();
+        sentFrom = first;
+        sentRows = rows;
+        return changed;
+    }
+
+    public boolean rankChanged(int myRank) {
+        if (rankSent && sentRank == myRank) {
+            return false;
+        }
+        rankSent = true;
+        sentRank = myRank;
+        return true;
+    }
+
+    // Moving to another page does not change what the client knows of its own rank.
+    public void keepRankFrom(LeaderboardSubscription previous) {
+        rankSent = previous.rankSent;
+        sentRank = previous.sentRank;
+    }
+
+    // The client may have missed pages; the next check sends whatever is current.
+    public void invalidate() {
+        sentRows = null;
+        rankSent = false;
+    }
+
+    private static boolean sameRows(List<Player> a, List<Player> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            Player p = a.get(i);
+            Player q = b.get(i);
+            if (!p.getUsername().equals(q.getUsername())
+                    || p.getTotalScore() != q.getTotalScore()
+                    || p.getTotalWins() != q.getTotalWins()
+                    || p.getTotalDraws() != q.getTotalDraws()
+                    || p.getTotalLosses() != q.getTotalLosses()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
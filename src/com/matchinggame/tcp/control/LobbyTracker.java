@@ -0,0 +1,86 @@
+package com.matchinggame.tcp.control;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.matchinggame.tcp.model.Command;
+import com.matchinggame.tcp.model.GameRoom;
+import com.matchinggame.tcp.model.Player;
+import com.matchinggame.tcp.model.RoomSummary;
+
+// Remembers what the lobby looked like at the last broadcast and turns the
+// current players and rooms into the events needed to get clients from there
+// to here. Callers hold the lobby lock so events go out in diff order, and pass
+// the copies PresenceRegistry lists, so an event cannot change after its diff.
+public class LobbyTracker {
+    private final Map<String, String> lastPlayers = new HashMap<>();
+    private final Map<String, RoomSummary> lastRooms = new HashMap<>();
+
+    public List<Command> diffPlayers(Collection<Player> onlinePlayers) {
+        List<Command> events = new ArrayList<>();
+        Map<String, Player> current = new HashMap<>();
+        for (Player player : onlinePlayers) {
+            current.put(player.getUsername().toLowerCase(), player);
+        }
+
+        Iterator<Map.Entry<String, String>> it = lastPlayers.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, String> entry = it.next();
+            if (!current.containsKey(entry.getKey())) {
+                events.add(new Command(Command.Type.PLAYER_OFFLINE, "SERVER", entry.getKey()));
+                it.remove();
+            }
+        }
+
+        for (Map.Entry<String, Player> entry : current.entrySet()) {
+            Player player = entry.getValue();
+            String signature = player.getStatus() + "|" + player.getTotalScore();
+            String previous = lastPlayers.put(entry.getKey(), signature);
+            if (previous == null) {
+                events.add(new Command(Command.Type.PLAYER_ONLINE, "SERVER", player));
+            } else if (!previous.equals(signature)) {
+                events.add(new Command(Command.Type.PLAYER_STATUS_CHANGED, "SERVER", player));
+            }
+        }
+        return events;
+    }
+
+    public List<Command> diffRooms(Collection<GameRoom> rooms) {
+        List<Command> events = new ArrayList<>();
+        Map<String, RoomSummary> current = new HashMap<>();
+        for (GameRoom room : rooms) {
+            current.put(room.getRoomId(), RoomSummary.of(room));
+        }
+
+        Iterator<String> it = lastRooms.keySet().iterator();
+        while (it.hasNext()) {
+            String roomId = it.next();
+            if (!current.containsKey(roomId)) {
+                events.add(new Command(Command.Type.ROOM_REMOVED, "SERVER", roomId));
+                it.remove();
+            }
+        }
+
+        for (RoomSummary summary : current.values()) {
+            RoomSummary previous = lastRooms.put(summary.getRoomId(), summary);
+            if (previous == null) {
+                events.add(new Command(Command.Type.ROOM_ADDED, "SERVER", summary));
+            } else if (!previous.equals(summary)) {
+                events.add(new Command(Command.Type.ROOM_UPDATED, "SERVER", summary));
+            }
+        }
+        return events;
+    }
+
+    public static ArrayList<RoomSummary> summarize(Collection<GameRoom> rooms) {
+        ArrayList<RoomSummary> summaries = new ArrayList<>(rooms.size());
+        for (GameRoom room : rooms) {
+            summaries.add(RoomSummary.of(room));
+        }
+        return summaries;
+    }
+}
@@ -0,0 +1,166 @@
+package com.matchinggame.tcp.control;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.matchinggame.tcp.model.Command;
+
+public class NioClientHandler extends ClientHandler {
+    private static final int INITIAL_READ_BUFFER = 8 * 1024;
+
+    private final SocketChannel channel;
+    private final NioEventLoop eventLoop;
+    private final String remoteAddress;
+    private SelectionKey key;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER);
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    // Set while a command runs on a database worker; event loop thread only.
+    private boolean readsPaused;
+
+    public NioClientHandler(SocketChannel channel, ServerControl serverControl, NioEventLoop eventLoop) {
+        super(serverControl);
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+        String address;
+        try {
+            address = channel.socket().getInetAddress().getHostAddress();
+        } catch (RuntimeException e) {
+            address = "unknown";
+        }
+        this.remoteAddress = address;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    // Called on the event loop thread only.
+    void onReadable() throws IOException {
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            closeConnection();
+            return;
+        }
+
+        readBuffer.flip();
+        if (!negotiated && readBuffer.hasRemaining()) {
+            negotiate(readBuffer.get() & 0xFF);
+        }
+        processFrames();
+    }
+
+    // Takes the buffer flipped for reading and leaves it compacted for the next read.
+    private void processFrames() throws IOException {
+        int needed = 0;
+        while (!readsPaused && readBuffer.remaining() >= FrameCodec.HEADER_LENGTH) {
+            int header = readBuffer.getInt(readBuffer.position());
+            int length = FrameCodec.payloadLength(header);
+            if (readBuffer.remaining() < FrameCodec.HEADER_LENGTH + length) {
+                needed = FrameCodec.HEADER_LENGTH + length;
+                break;
+            }
+            int start = readBuffer.position() + FrameCodec.HEADER_LENGTH;
+            Command command;
+            if (FrameCodec.isCompressed(header)) {
+                byte[] payload = FrameCompressor.decompress(readBuffer.array(), start, length);
+                command = codec.decode(payload, 0, payload.length);
+            } else {
+                command = codec.decode(readBuffer.array(), start, length);
+            }
+            readBuffer.position(start + length);
+            processCommand(command);
+            if (isClosing) return;
+        }
+        readBuffer.compact();
+
+        if (needed > readBuffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(needed);
+            readBuffer.flip();
+            larger.put(readBuffer);
+            readBuffer = larger;
+        }
+    }
+
+    // Later frames from this client wait in the read buffer until the task is done,
+    // so its commands still run in the order they arrived.
+    @Override
+    protected void runBlocking(Runnable task) {
+        readsPaused = true;
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        serverControl.runDatabaseTask(() -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                serverControl.logError("Error processing command from " + remoteAddress + ": " + t);
+                closeConnection();
+            } finally {
+                eventLoop.resumeReads(this);
+            }
+        });
+    }
+
+    // Called on the event loop thread only.
+    void resumeReads() throws IOException {
+        readsPaused = false;
+        if (isClosing || !key.isValid()) return;
+        key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        readBuffer.flip();
+        processFrames();
+    }
+
+    // Called on the event loop thread only. Leaves OP_WRITE set while the socket is full.
+    void flush() throws IOException {
+        flushRequested.set(false);
+        if (key == null || !key.isValid()) return;
+
+        ByteBuffer buffer;
+        while ((buffer = outbound.peek()) != null) {
+            channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                key.interestOps(readOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+            outbound.poll();
+        }
+        key.interestOps(readOps());
+
+        if (closeWhenDrained) {
+            closeConnection();
+        }
+    }
+
+    private int readOps() {
+        return readsPaused ? 0 : SelectionKey.OP_READ;
+    }
+
+    @Override
+    protected void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            eventLoop.requestFlush(this);
+        }
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    @Override
+    protected void closeTransport() {
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
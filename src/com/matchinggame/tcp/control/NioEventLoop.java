@@ -0,0 +1,134 @@
+package com.matchinggame.tcp.control;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class NioEventLoop implements Runnable {
+    private final Selector selector;
+    private final ServerControl serverControl;
+    private final Queue<NioClientHandler> pendingRegistrations = new ConcurrentLinkedQueue<>();
+    private final Queue<NioClientHandler> pendingFlushes = new ConcurrentLinkedQueue<>();
+    private final Queue<NioClientHandler> pendingResumes = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    public NioEventLoop(ServerControl serverControl) throws IOException {
+        this.serverControl = serverControl;
+        this.selector = Selector.open();
+    }
+
+    public void register(NioClientHandler handler) {
+        pendingRegistrations.add(handler);
+        selector.wakeup();
+    }
+
+    void requestFlush(NioClientHandler handler) {
+        pendingFlushes.add(handler);
+        selector.wakeup();
+    }
+
+    void resumeReads(NioClientHandler handler) {
+        pendingResumes.add(handler);
+        selector.wakeup();
+    }
+
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select();
+                registerPending();
+                flushPending();
+                resumePending();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handleKey(key);
+                }
+            } catch (IOException e) {
+                serverControl.logError("Event loop error: " + e.getMessage());
+            } catch (Throwable t) {
+                // One bad client must not take every connection on this loop down with it.
+                serverControl.logError("Event loop error: " + t);
+            }
+        }
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void registerPending() {
+        NioClientHandler handler;
+        while ((handler = pendingRegistrations.poll()) != null) {
+            try {
+                SelectionKey key = handler.getChannel().register(selector, SelectionKey.OP_READ, handler);
+                handler.setKey(key);
+                handler.flush();
+            } catch (IOException e) {
+                handler.closeConnection();
+            } catch (Throwable t) {
+                serverControl.logError("Error registering " + handler.getRemoteAddress() + ": " + t);
+                handler.closeConnection();
+            }
+        }
+    }
+
+    private void flushPending() {
+        NioClientHandler handler;
+        while ((handler = pendingFlushes.poll()) != null) {
+            try {
+                handler.flush();
+            } catch (IOException | CancelledKeyException e) {
+                handler.closeConnection();
+            } catch (Throwable t) {
+                serverControl.logError("Error writing to " + handler.getRemoteAddress() + ": " + t);
+                handler.closeConnection();
+            }
+        }
+    }
+
+    private void resumePending() {
+        NioClientHandler handler;
+        while ((handler = pendingResumes.poll()) != null) {
+            try {
+                handler.resumeReads();
+            } catch (IOException | CancelledKeyException e) {
+                handler.closeConnection();
+            } catch (Throwable t) {
+                serverControl.logError("Error processing command from " + handler.getRemoteAddress() + ": " + t);
+                handler.closeConnection();
+            }
+        }
+    }
+
+    private void handleKey(SelectionKey key) {
+        NioClientHandler handler = (NioClientHandler) key.attachment();
+        try {
+            if (key.isValid() && key.isWritable()) {
+                handler.flush();
+            }
+            if (key.isValid() && key.isReadable()) {
+                handler.onReadable();
+            }
+        } catch (IOException | CancelledKeyException e) {
+            handler.closeConnection();
+        } catch (Throwable t) {
+            serverControl.logError("Error processing command from " + handler.getRemoteAddress() + ": " + t);
+            handler.closeConnection();
+        }
+    }
+}
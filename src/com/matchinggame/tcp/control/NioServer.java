@@ -0,0 +1,65 @@
+package com.matchinggame.tcp.control;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+public class NioServer {
+    private final ServerControl serverControl;
+    private final int port;
+    private final NioEventLoop[] eventLoops;
+    private ServerSocketChannel serverChannel;
+
+    public NioServer(ServerControl serverControl, int port, int eventLoopCount) throws IOException {
+        this.serverControl = serverControl;
+        this.port = port;
+        this.eventLoops = new NioEventLoop[Math.max(1, eventLoopCount)];
+        for (int i = 0; i < eventLoops.length; i++) {
+            eventLoops[i] = new NioEventLoop(serverControl);
+        }
+    }
+
+    public int getEventLoopCount() {
+        return eventLoops.length;
+    }
+
+    // Accepts on the calling thread, like the blocking accept loop in ServerControl.start().
+    public void run() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+
+        for (int i = 0; i < eventLoops.length; i++) {
+            Thread loopThread = new Thread(eventLoops[i], "nio-event-loop-" + i);
+            loopThread.setDaemon(true);
+            loopThread.start();
+        }
+
+        int next = 0;
+        try {
+            while (serverChannel.isOpen()) {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+                NioEventLoop loop = eventLoops[next];
+                next = (next + 1) % eventLoops.length;
+
+                NioClientHandler handler = new NioClientHandler(channel, serverControl, loop);
+                serverControl.acceptHandler(handler);
+                loop.register(handler);
+            }
+        } finally {
+            for (NioEventLoop loop : eventLoops) {
+                loop.shutdown();
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+    }
+}
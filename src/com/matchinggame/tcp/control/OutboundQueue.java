@@ -0,0 +1,64 @@
+package com.matchinggame.tcp.control;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded multi-producer queue of encoded frames waiting to be written to one
+// connection. Producers never block: offer() fails once the frame limit is hit.
+public class OutboundQueue {
+    private final Queue<ByteBuffer> frames = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final int capacity;
+
+    public OutboundQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public boolean offer(ByteBuffer frame) {
+        if (depth.incrementAndGet() > capacity) {
+            depth.decrementAndGet();
+            return false;
+        }
+        queuedBytes.addAndGet(frame.limit());
+        frames.add(frame);
+        return true;
+    }
+
+    public ByteBuffer peek() {
+        return frames.peek();
+    }
+
+    public ByteBuffer poll() {
+        ByteBuffer frame = frames.poll();
+        if (frame != null) {
+            depth.decrementAndGet();
+            queuedBytes.addAndGet(-frame.limit());
+        }
+        return frame;
+    }
+
+    public boolean isEmpty() {
+        return frames.isEmpty();
+    }
+
+    public int size() {
+        return depth.get();
+    }
+
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        while (poll() != null) {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.matchinggame.tcp.control;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.matchinggame.tcp.constants.PlayerStatus;
+import com.matchinggame.tcp.model.Player;
+
+// Who is logged in and what they are doing, keyed lower-case. Only online
+// players have an entry, so online checks are a map lookup and lists are built
+// from online players alone. States change only by compare-and-set along the
+// edges PlayerStatus allows, so a late request cannot overwrite a newer state,
+// and a player who has logged out has no entry to bring back online. The status
+// lives here alone; listed players are copies labelled from it.
+public class PresenceRegistry {
+    private static final class Presence {
+        private final Player player;
+        private final AtomicReference<PlayerStatus> status = new AtomicReference<>(PlayerStatus.LOBBY);
+
+        Presence(Player player) {
+            this.player = player;
+        }
+    }
+
+    private final Map<String, Presence> online = new ConcurrentHashMap<>();
+
+    // False if the player was already online.
+    public boolean login(Player player) {
+        Presence presence = new Presence(player);
+        return online.putIfAbsent(key(player.getUsername()), presence) == null;
+    }
+
+    public void logout(String username) {
+        Presence presence = online.remove(key(username));
+        if (presence != null) {
+            presence.status.set(PlayerStatus.OFFLINE);
+        }
+    }
+
+    public boolean isOnline(String username) {
+        return online.containsKey(key(username));
+    }
+
+    public PlayerStatus statusOf(String username) {
+        Presence presence = online.get(key(username));
+        return presence == null ? PlayerStatus.OFFLINE : presence.status.get();
+    }
+
+    // False if the player is offline or no longer in the expected state.
+    public boolean transition(String username, PlayerStatus expected, PlayerStatus next) {
+        if (!expected.canMoveTo(next)) {
+            throw new IllegalArgumentException("Illegal presence change " + expected + " -> " + next);
+        }
+        Presence presence = online.get(key(username));
+        return presence != null && presence.status.compareAndSet(expected, next);
+    }
+
+    public ArrayList<Player> onlinePlayers() {
+        ArrayList<Player> players = new ArrayList<>(online.size());
+        for (Presence presence : online.values()) {
+            Player player = presence.player;
+            players.add(new Player(player.getUsername(), player.getTotalScore(), presence.status.get().getLabel(),
+                    player.getTotalWins(), player.getTotalLosses(), player.getTotalDraws()));
+        }
+        return players;
+    }
+
+    public int size() {
+        return online.size();
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase();
+    }
+}
@@ -0,0 +1,60 @@
+package com.matchinggame.tcp.control;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// Runs one room's tasks one at a time, in the order they were posted, on a
+// pool shared by all rooms. Room state is therefore only touched by a single
+// thread at any moment and needs no lock, while different rooms run in parallel.
+public class RoomMailbox implements Executor {
+    // Tasks run per turn on the pool before the mailbox yields to other rooms.
+    private static final int BATCH = 64;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final Executor executor;
+    private final Consumer<RuntimeException> errorHandler;
+
+    public RoomMailbox(Executor executor, Consumer<RuntimeException> errorHandler) {
+        this.executor = executor;
+        this.errorHandler = errorHandler;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            int ran = 0;
+            while (ran++ < BATCH && (task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    errorHandler.accept(e);
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            if (!tasks.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        return tasks.size();
+    }
+}
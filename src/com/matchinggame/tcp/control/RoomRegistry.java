@@ -0,0 +1,116 @@
+package com.matchinggame.tcp.control;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import com.matchinggame.tcp.model.GameRoom;
+import com.matchinggame.tcp.model.Player;
+
+// Active rooms by id, keyed lower-case, and the entries for their players in the
+// server-wide index of the room each player sits in. Lookups never lock;
+// membership changes take the lock so a room's player list and the player index
+// always move together. Each room also gets the mailbox its game logic runs on.
+public class RoomRegistry {
+    private final Map<String, GameRoom> roomsById = new ConcurrentHashMap<>();
+    private final Map<String, String> roomIdByPlayer;
+    private final Map<String, RoomMailbox> mailboxes = new ConcurrentHashMap<>();
+    private final Executor roomExecutor;
+    private final Consumer<RuntimeException> errorHandler;
+
+    // A ReentrantLock rather than a monitor so a virtual thread that blocks while
+    // holding it does not pin its carrier.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Every shard writes its players into the same roomIdByPlayer, so a player's room is
+    // one lookup away whichever shard it is on.
+    public RoomRegistry(Executor roomExecutor, Map<String, String> roomIdByPlayer, Consumer<RuntimeException> errorHandler) {
+        this.roomExecutor = roomExecutor;
+        this.roomIdByPlayer = roomIdByPlayer;
+        this.errorHandler = errorHandler;
+    }
+
+    public void add(GameRoom room) {
+        lock.lock();
+        try {
+            mailboxes.put(key(room.getRoomId()), new RoomMailbox(roomExecutor, errorHandler));
+            roomsById.put(key(room.getRoomId()), room);
+            for (Player player : room.getPlayers()) {
+                roomIdByPlayer.put(key(player.getUsername()), room.getRoomId());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean join(GameRoom room, Player player) {
+        lock.lock();
+        try {
+            boolean added = room.addPlayer(player);
+            if (added) {
+                roomIdByPlayer.put(key(player.getUsername()), room.getRoomId());
+            }
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void leave(GameRoom room, Player player) {
+        lock.lock();
+        try {
+            room.removePlayer(player);
+            roomIdByPlayer.remove(key(player.getUsername()), room.getRoomId());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(GameRoom room) {
+        lock.lock();
+        try {
+            if (roomsById.remove(key(room.getRoomId()), room)) {
+                mailboxes.remove(key(room.getRoomId()));
+            }
+            for (Player player : room.getPlayers()) {
+                roomIdByPlayer.remove(key(player.getUsername()), room.getRoomId());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public GameRoom findById(String roomId) {
+        return roomId == null ? null : roomsById.get(key(roomId));
+    }
+
+    // A task that arrives after the room was disbanded still runs, on a mailbox of its own.
+    public RoomMailbox mailboxFor(GameRoom room) {
+        RoomMailbox mailbox = mailboxes.get(key(room.getRoomId()));
+        return mailbox != null ? mailbox : new RoomMailbox(roomExecutor, errorHandler);
+    }
+
+    public Collection<GameRoom> all() {
+        return roomsById.values();
+    }
+
+    public int size() {
+        return roomsById.size();
+    }
+
+    // Tasks waiting on the rooms' mailboxes, summed without stopping them.
+    public int getPendingTaskCount() {
+        int pending = 0;
+        for (RoomMailbox mailbox : mailboxes.values()) {
+            pending += mailbox.getPendingCount();
+        }
+        return pending;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase();
+    }
+}
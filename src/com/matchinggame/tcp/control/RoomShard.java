@@ -0,0 +1,50 @@
+package com.matchinggame.tcp.control;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.function.Consumer;
+
+// One slice of the game engine. Rooms are assigned to a shard by hash of their
+// id, and the shard owns everything about them: the registry, the thread their
+// mailboxes drain on, and the scheduler for their turn deadlines. Shards share
+// nothing but the concurrent index of which room each player is in, so adding
+// shards adds cores that game logic can use.
+public class RoomShard {
+    private final int index;
+    private final ExecutorService executor;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final RoomRegistry rooms;
+    private final TurnTimers turnTimers;
+
+    public RoomShard(int index, Map<String, String> roomIdByPlayer, Consumer<RuntimeException> errorHandler) {
+        this.index = index;
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "room-shard-" + index);
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "room-shard-" + index + "-timers");
+            t.setDaemon(true);
+            return t;
+        });
+        // Nearly every turn deadline is cancelled by a flip; drop them from the queue right away.
+        scheduler.setRemoveOnCancelPolicy(true);
+        rooms = new RoomRegistry(executor, roomIdByPlayer, errorHandler);
+        turnTimers = new TurnTimers(scheduler);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public RoomRegistry getRooms() {
+        return rooms;
+    }
+
+    public TurnTimers getTurnTimers() {
+        return turnTimers;
+    }
+}
@@ -0,0 +1,63 @@
+package com.matchinggame.tcp.control;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import com.matchinggame.tcp.model.Command;
+
+public class SerializedCommandCodec implements CommandCodec {
+    public static final byte ID = 0;
+    public static final SerializedCommandCodec INSTANCE = new SerializedCommandCodec();
+
+    // Frames come from untrusted clients: only the protocol's own classes and the
+    // JDK types they are built from may be instantiated, within fixed graph limits.
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=16;maxrefs=100000;maxarray=65536;"
+            + "com.matchinggame.tcp.model.*;com.matchinggame.tcp.constants.*;"
+            + "java.lang.Object;java.lang.String;java.lang.Number;java.lang.Integer;java.lang.Long;java.lang.Boolean;java.lang.Enum;"
+            + "java.util.ArrayList;java.util.Date;java.util.concurrent.CopyOnWriteArrayList;java.util.concurrent.ConcurrentHashMap;"
+            + "java.util.concurrent.ConcurrentHashMap$Segment;java.util.concurrent.locks.ReentrantLock;"
+            + "java.util.concurrent.locks.ReentrantLock$Sync;java.util.concurrent.locks.ReentrantLock$NonfairSync;"
+            + "java.util.concurrent.locks.AbstractQueuedSynchronizer;"
+            + "java.util.concurrent.locks.AbstractOwnableSynchronizer;!*");
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(Command command) throws IOException {
+        return serialize(command);
+    }
+
+    @Override
+    public Command decode(byte[] data, int offset, int length) throws IOException {
+        try {
+            return (Command) deserialize(data, offset, length);
+        } catch (ClassCastException e) {
+            throw new IOException("Invalid command frame", e);
+        }
+    }
+
+    static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(byte[] data, int offset, int length) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data, offset, length))) {
+            ois.setObjectInputFilter(FILTER);
+            return ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Invalid command frame", e);
+        }
+    }
+}
@@ -1,25 +1,37 @@
 package com.matchinggame.tcp.control;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
+import com.matchinggame.tcp.constants.PlayerStatus;
+import com.matchinggame.tcp.constants.ServerMode;
 import com.matchinggame.tcp.model.Command;
 import com.matchinggame.tcp.model.FlipData;
+import com.matchinggame.tcp.model.GameDelta;
 import com.matchinggame.tcp.model.GameRoom;
 import com.matchinggame.tcp.model.GameState;
 import com.matchinggame.tcp.model.InviteData;
+import com.matchinggame.tcp.model.LeaderboardQuery;
 import com.matchinggame.tcp.model.MatchHistoryEntry;
 import com.matchinggame.tcp.model.Player;
 import com.matchinggame.tcp.view.ServerView;
@@ -27,25 +39,103 @@ import com.matchinggame.tcp.view.ServerView;
 public class ServerControl {
     private ServerSocket serverSocket;
     private final int PORT = 9999;
-    private List<ClientHandler> connectedClients;
-    private List<Player> onlinePlayers;
-    private List<GameRoom> activeRooms;
+    private Set<ClientHandler> connectedClients;
+    // Logged-in handlers by lower-cased username.
+    private final Map<String, ClientHandler> handlersByUsername = new ConcurrentHashMap<>();
+    private final PresenceRegistry presence = new PresenceRegistry();
+    private final RoomShard[] shards;
+    // The room each player sits in, lower-case username to room id, kept by the shards' registries.
+    private final Map<String, String> roomIdByPlayer = new ConcurrentHashMap<>();
     private ServerView view;
+    private final ServerMode mode;
+    private final int eventLoopCount;
     
     private DatabaseManager dbManager; 
     private Map<String, Player> allPlayersData = new ConcurrentHashMap<>();
+    private final LeaderboardIndex leaderboard = new LeaderboardIndex();
+    // Only read and replaced under the lobby lock.
+    private LeaderboardSnapshot leaderboardSnapshot;
 
-    private Map<String, Timer> turnTimers = Collections.synchronizedMap(new java.util.concurrent.ConcurrentHashMap<>());
-    private Map<String, int[]> flippedCardsMap = Collections.synchronizedMap(new java.util.concurrent.ConcurrentHashMap<>());
-    private Map<String, Integer> flipCountMap = Collections.synchronizedMap(new java.util.concurrent.ConcurrentHashMap<>());
+    private Map<String, int[]> flippedCardsMap = new ConcurrentHashMap<>();
+    private Map<String, Integer> flipCountMap = new ConcurrentHashMap<>();
+
+    private final LobbyTracker lobbyTracker = new LobbyTracker();
+    private final SessionRegistry sessions = new SessionRegistry();
+    private final ReentrantLock lobbyLock = new ReentrantLock();
+    private final AtomicBoolean playersDirty = new AtomicBoolean();
+    private final AtomicBoolean roomsDirty = new AtomicBoolean();
+    private final AtomicBoolean leaderboardDirty = new AtomicBoolean();
+    private final AtomicBoolean lobbyFlushScheduled = new AtomicBoolean();
+
+    private final LongAdder lobbyDrops = new LongAdder();
+    private final LongAdder lobbyResyncs = new LongAdder();
+    private final LongAdder leaderboardPushes = new LongAdder();
+    private final LongAdder leaderboardSnapshots = new LongAdder();
+    private final LongAdder slowEvictions = new LongAdder();
+    private final LongAdder reapedConnections = new LongAdder();
+    private final AtomicInteger heartbeatSequence = new AtomicInteger();
+    private final AtomicInteger pendingDbWrites = new AtomicInteger();
+    private final LongAdder dbWrites = new LongAdder();
+    private final AtomicLong maxDbWriteWaitNanos = new AtomicLong();
+
+    // Shared by everything on the server that runs later or periodically. Turn
+    // deadlines are the exception; each shard keeps its own.
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "server-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Database writes leave the game threads here. One thread keeps them in the
+    // order the games finished, so a player's row never goes back to older stats.
+    private final ExecutorService dbWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "db-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Database reads for connections that share a selector thread, which must not wait on JDBC.
+    private static final int DB_WORKERS = Math.max(1, Integer.getInteger("matchinggame.db.workers", 4));
+    private final AtomicInteger dbWorkerSequence = new AtomicInteger();
+    private final ExecutorService dbWorkers = Executors.newFixedThreadPool(DB_WORKERS, r -> {
+        Thread t = new Thread(r, "db-worker-" + dbWorkerSequence.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Rooms are spread over this many shards, each with one thread for game logic.
+    private static final int SHARD_COUNT = Math.max(1, Integer.getInteger("matchinggame.shards",
+            Runtime.getRuntime().availableProcessors()));
 
     private static final int TURN_DURATION_MS = 10000;
 
+    // 0 sends every lobby change immediately.
+    private static final int LOBBY_TICK_MS = Integer.getInteger("matchinggame.lobby.tickMs", 50);
+    private static final int STATS_INTERVAL_SEC = Integer.getInteger("matchinggame.stats.intervalSec", 60);
+    private static final int HEARTBEAT_INTERVAL_MS = Integer.getInteger("matchinggame.heartbeat.intervalMs", 5000);
+    private static final int HEARTBEAT_MAX_MISSED = Integer.getInteger("matchinggame.heartbeat.maxMissed", 3);
+    private static final int RESUME_GRACE_MS = Integer.getInteger("matchinggame.resume.graceMs", 30000);
+    private static final int LEADERBOARD_TOP_SIZE = Integer.getInteger("matchinggame.leaderboard.topSize", 20);
+    private static final int LEADERBOARD_MAX_PAGE = 100;
+
+    // When off, every game change is pushed as a full GameState like before.
+    private static final boolean DELTA_UPDATES =
+            Boolean.parseBoolean(System.getProperty("matchinggame.game.deltaUpdates", "true"));
+
     public ServerControl(ServerView view) {
+        this(view, ServerMode.BLOCKING, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ServerControl(ServerView view, ServerMode mode, int eventLoopCount) {
         this.view = view;
-        connectedClients = Collections.synchronizedList(new ArrayList<>());
-        onlinePlayers = Collections.synchronizedList(new ArrayList<>());
-        activeRooms = Collections.synchronizedList(new ArrayList<>());
+        this.mode = mode;
+        this.eventLoopCount = eventLoopCount;
+        connectedClients = ConcurrentHashMap.newKeySet();
+
+        shards = new RoomShard[SHARD_COUNT];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new RoomShard(i, roomIdByPlayer, e -> logError("Room task failed: " + e));
+        }
         
         dbManager = new DatabaseManager(); 
         allPlayersData.putAll(
@@ -55,25 +145,129 @@ public class ServerControl {
                     p -> p
                 ))
         );
+        allPlayersData.values().forEach(leaderboard::update);
         view.logMessage("Loaded " + allPlayersData.size() + " players from the database.");
+
+        if (STATS_INTERVAL_SEC > 0) {
+            scheduler.scheduleAtFixedRate(this::logStats, STATS_INTERVAL_SEC, STATS_INTERVAL_SEC, TimeUnit.SECONDS);
+        }
+        scheduler.scheduleAtFixedRate(this::checkSlowConsumers, 1, 1, TimeUnit.SECONDS);
+        if (HEARTBEAT_INTERVAL_MS > 0) {
+            scheduler.scheduleAtFixedRate(this::sendHeartbeats, HEARTBEAT_INTERVAL_MS, HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sendHeartbeats() {
+        int sequence = heartbeatSequence.incrementAndGet();
+        EncodedCommand ping = new EncodedCommand(new Command(Command.Type.PING, "SERVER", sequence));
+        for (ClientHandler client : connectedClients) {
+            client.heartbeat(ping, sequence, HEARTBEAT_MAX_MISSED);
+        }
+    }
+
+    private void logStats() {
+        view.logMessage("[STATS] " + FrameCompressor.describeStats());
+        view.logMessage("[STATS] " + dbManager.describePoolStats());
+        view.logMessage(String.format("[STATS] db writer: %d pending, %d written, max queue wait %.2f ms",
+                pendingDbWrites.get(), dbWrites.sum(), maxDbWriteWaitNanos.get() / 1e6));
+        view.logMessage("[STATS] slow consumers: " + lobbyDrops.sum() + " lobby messages dropped, "
+                + lobbyResyncs.sum() + " resyncs, " + slowEvictions.sum() + " evictions");
+        view.logMessage("[STATS] leaderboard: " + leaderboard.size() + " players, version " + leaderboard.getVersion() + ", "
+                + leaderboardSnapshots.sum() + " snapshots built, " + leaderboardPushes.sum() + " pages pushed");
+
+        double rttSum = 0;
+        double rttMax = 0;
+        int measured = 0;
+        long queuedFrames = 0;
+        int maxQueueDepth = 0;
+        for (ClientHandler client : connectedClients) {
+            int depth = client.getQueueDepth();
+            queuedFrames += depth;
+            maxQueueDepth = Math.max(maxQueueDepth, depth);
+            double rtt = client.getRttMillis();
+            if (rtt >= 0) {
+                rttSum += rtt;
+                rttMax = Math.max(rttMax, rtt);
+                measured++;
+            }
+        }
+        view.logMessage(String.format("[STATS] heartbeat: %d connections, %d suspended sessions, avg RTT %.1f ms, max RTT %.1f ms, %d reaped",
+                connectedClients.size(), sessions.getSuspendedCount(), measured == 0 ? 0.0 : rttSum / measured, rttMax, reapedConnections.sum()));
+        view.logMessage("[STATS] outbound queues: " + queuedFrames + " frames queued, max " + maxQueueDepth + " on one connection");
+        StringBuilder perShard = new StringBuilder();
+        int roomCount = 0;
+        for (RoomShard shard : shards) {
+            roomCount += shard.getRooms().size();
+            perShard.append(perShard.length() == 0 ? "" : ", ").append(shard.getIndex()).append(": ")
+                    .append(shard.getRooms().size()).append("/").append(shard.getRooms().getPendingTaskCount())
+                    .append("/").append(shard.getTurnTimers().getPendingCount());
+        }
+        view.logMessage("[STATS] rooms: " + roomCount + " active on " + shards.length
+                + " shards (rooms/queued room tasks/pending turn timeouts " + perShard + ")");
     }
 
     public void start() {
         try {
+            if (mode == ServerMode.NIO) {
+                NioServer nioServer = new NioServer(this, PORT, eventLoopCount);
+                view.logMessage("Server is running on port " + PORT + " (NIO, " + nioServer.getEventLoopCount() + " event loops)...");
+                nioServer.run();
+                return;
+            }
+
+            ExecutorService connectionExecutor = null;
+            ExecutorService writerExecutor;
+            if (mode == ServerMode.VIRTUAL) {
+                connectionExecutor = createVirtualThreadExecutor();
+                writerExecutor = connectionExecutor;
+            } else {
+                AtomicInteger writerIds = new AtomicInteger();
+                writerExecutor = Executors.newCachedThreadPool(r -> {
+                    Thread t = new Thread(r, "client-writer-" + writerIds.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+
             serverSocket = new ServerSocket(PORT);
-            view.logMessage("Server is running on port " + PORT + "...");
+            view.logMessage("Server is running on port " + PORT + " (" + mode + ")...");
             
             while (true) {
                 Socket clientSocket = serverSocket.accept();
-                view.logMessage("New client connected from: " + clientSocket.getInetAddress().getHostAddress());
-                ClientHandler handler = new ClientHandler(clientSocket, this);
-                connectedClients.add(handler);
-                handler.start();
+                SocketClientHandler handler = new SocketClientHandler(clientSocket, this, writerExecutor);
+                acceptHandler(handler);
+                if (connectionExecutor != null) {
+                    connectionExecutor.execute(handler);
+                } else {
+                    new Thread(handler, "client-" + handler.getRemoteAddress()).start();
+                }
             }
         } catch (IOException e) {
             view.logMessage("Server Error: " + e.getMessage());
         }
     }
+
+    // The project targets Java 17, so the Java 21 factory is looked up reflectively.
+    private ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            view.logMessage("[WARN] Virtual threads are not available on this JVM (Java 21+ required). "
+                    + "Falling back to a cached pool of platform threads, one per connection.");
+            AtomicInteger clientIds = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "client-" + clientIds.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    void acceptHandler(ClientHandler handler) {
+        view.logMessage("New client connected from: " + handler.getRemoteAddress());
+        connectedClients.add(handler);
+    }
     
     private void updatePlayerStats(Player player, int scoreChange, boolean isWinner, boolean isDraw, boolean isLoser) {
         Player dataPlayer = allPlayersData.get(player.getUsername().toLowerCase());
@@ -88,25 +282,134 @@ public class ServerControl {
                 dataPlayer.setTotalLosses(dataPlayer.getTotalLosses() + 1);
             }
             
-            dbManager.updatePlayerStats(dataPlayer); 
+            leaderboard.update(dataPlayer);
+            Player saved = new Player(dataPlayer.getUsername(), dataPlayer.getTotalScore(), dataPlayer.getStatus(),
+                    dataPlayer.getTotalWins(), dataPlayer.getTotalLosses(), dataPlayer.getTotalDraws());
+            writeToDatabase(() -> dbManager.updatePlayerStats(saved));
         }
     }
     
-   public List<Player> getLeaderboard() {
-    synchronized (allPlayersData) {
-        return allPlayersData.values().stream()
-                .sorted(Comparator.comparing(Player::getTotalScore, Comparator.reverseOrder())
-                        .thenComparing(Player::getTotalWins, Comparator.reverseOrder())
-                        .thenComparing(Player::getTotalDraws, Comparator.reverseOrder())
-                        .thenComparing(Player::getTotalLosses))
-                .collect(Collectors.toList());
+    void runDatabaseTask(Runnable task) {
+        dbWorkers.execute(task);
     }
-}
 
-    public boolean isUserLoggedIn(String username) {
-        synchronized (onlinePlayers) {
-            return onlinePlayers.stream().anyMatch(p -> p.getUsername().equalsIgnoreCase(username));
+    // Stats and history are already applied in memory; the rows only need to land eventually.
+    private void writeToDatabase(Runnable write) {
+        long queued = System.nanoTime();
+        pendingDbWrites.incrementAndGet();
+        dbWriter.execute(() -> {
+            maxDbWriteWaitNanos.accumulateAndGet(System.nanoTime() - queued, Math::max);
+            try {
+                write.run();
+            } catch (RuntimeException e) {
+                view.logMessage("Database write failed: " + e.getMessage());
+            } finally {
+                pendingDbWrites.decrementAndGet();
+                dbWrites.increment();
+            }
+        });
+    }
+
+    // A query answers with the page and also subscribes the client to it, so
+    // later pushes cover whatever the client is looking at.
+    public void handleLeaderboardQuery(ClientHandler handler, Command command) {
+        LeaderboardQuery query = (LeaderboardQuery) command.getData();
+        int count = clampPageSize(query.getPageSize());
+        LeaderboardSubscription subscription;
+        switch (command.getType()) {
+            case GET_LEADERBOARD_PAGE:
+                int from = (int) Math.min((long) Math.max(0, query.getPage()) * count, Integer.MAX_VALUE);
+                subscription = LeaderboardSubscription.window(from, count);
+                break;
+            case GET_LEADERBOARD_AROUND_ME:
+                subscription = LeaderboardSubscription.aroundMe(count);
+                break;
+            default:
+                subscription = LeaderboardSubscription.window(0, count);
+                break;
         }
+        lobbyLock.lock();
+        try {
+            LeaderboardSnapshot snapshot = currentLeaderboard();
+            LeaderboardSubscription current = handler.getLeaderboardSubscription();
+            // The client already shows this page at this version.
+            if (current != null && current.sameWindow(subscription) && current.isCurrent(snapshot.getVersion())
+                    && query.getKnownVersion() == snapshot.getVersion()) {
+                return;
+            }
+            if (current != null) {
+                subscription.keepRankFrom(current);
+            }
+            handler.setLeaderboardSubscription(subscription);
+            sendLeaderboard(handler, subscription, false);
+        } finally {
+            lobbyLock.unlock();
+        }
+    }
+
+    // Replaced once a stat change has moved the index on; a new snapshot costs nothing until pages are read.
+    private LeaderboardSnapshot currentLeaderboard() {
+        LeaderboardSnapshot snapshot = leaderboardSnapshot;
+        if (snapshot == null || snapshot.getVersion() != leaderboard.getVersion()) {
+            snapshot = leaderboard.snapshot();
+            leaderboardSnapshot = snapshot;
+            leaderboardSnapshots.increment();
+        }
+        return snapshot;
+    }
+
+    // Sends whichever of the subscriber's page and own rank changed. Pushes go through
+    // the droppable lobby path; a client that falls behind is resynced instead.
+    private void sendLeaderboard(ClientHandler handler, LeaderboardSubscription subscription, boolean push) {
+        String username = handler.getPlayer().getUsername();
+        LeaderboardSnapshot snapshot;
+        int myRank;
+        int from;
+        // A stat change between taking the snapshot and reading it leaves it unreadable;
+        // start over from the newer one rather than mix the two states.
+        while (true) {
+            snapshot = currentLeaderboard();
+            myRank = snapshot.rankOf(username);
+            if (myRank != LeaderboardIndex.STALE) {
+                from = subscription.firstRank(myRank);
+                if (snapshot.load(from, subscription.getCount())) break;
+            }
+        }
+        if (subscription.pageChanged(snapshot, from)) {
+            EncodedCommand page = snapshot.page(from, subscription.getCount());
+            if (push) {
+                handler.sendLobby(page);
+                leaderboardPushes.increment();
+            } else {
+                handler.sendEncoded(page);
+            }
+        }
+        if (subscription.rankChanged(myRank)) {
+            Command rank = new Command(Command.Type.LEADERBOARD_RANK, "SERVER", myRank);
+            if (push) {
+                handler.sendLobby(new EncodedCommand(rank));
+            } else {
+                handler.sendMessage(rank);
+            }
+        }
+    }
+
+    // Only clients whose visible rows or own rank changed hear about a stat change.
+    private void pushLeaderboardPages() {
+        for (ClientHandler client : connectedClients) {
+            LeaderboardSubscription subscription = client.getLeaderboardSubscription();
+            if (client.getPlayer() != null && subscription != null) {
+                sendLeaderboard(client, subscription, true);
+            }
+        }
+    }
+
+    private static int clampPageSize(int requested) {
+        return Math.max(1, Math.min(requested, LEADERBOARD_MAX_PAGE));
+    }
+
+    public boolean isUserLoggedIn(String username) {
+        return presence.isOnline(username);
     }
 
     public Player findOrCreatePlayer(String username) {
@@ -118,96 +421,269 @@ public class ServerControl {
             Player dbPlayer = dbManager.getPlayerByUsername(username);
             if (dbPlayer != null) {
                 allPlayersData.put(username.toLowerCase(), dbPlayer);
+                leaderboard.update(dbPlayer);
                 return dbPlayer;
             } else {
                 int initialScore = 0; 
-                Player newPlayer = new Player(username, initialScore, "Offline", 0, 0, 0);
+                Player newPlayer = new Player(username, initialScore, PlayerStatus.OFFLINE.getLabel(), 0, 0, 0);
                 dbManager.insertPlayer(newPlayer); 
                 allPlayersData.put(username.toLowerCase(), newPlayer);
+                leaderboard.update(newPlayer);
                 return newPlayer;
             }
         }
     }
 
     public void addPlayer(Player player) {
-        player.setStatus("Online");
-        synchronized (onlinePlayers) {
-            if (!onlinePlayers.contains(player)) {
-                onlinePlayers.add(player);
-            }
-        }
+        presence.login(player);
         view.addUserToList(player.getUsername()); 
+    }
+
+    public void announceLogin(Player player) {
         view.logMessage("[LOGIN] " + player.getUsername() + " has logged in. (Score: " + player.getTotalScore() + ")");
         broadcastRoomList();
         broadcastPlayerScoreUpdate();
     }
 
     public void removePlayer(String username) {
-        Player p = allPlayersData.get(username.toLowerCase());
-        if (p != null) {
-            p.setStatus("Offline");
-        }
-        synchronized (onlinePlayers) {
-            onlinePlayers.removeIf(player -> player.getUsername().equalsIgnoreCase(username));
-        }
+        presence.logout(username);
         view.removeUserFromList(username);
     }
 
     public void removeHandler(ClientHandler handler) {
         boolean removed = connectedClients.remove(handler);
-        if (removed && handler.getPlayer() != null) {
-            String username = handler.getPlayer().getUsername();
-            
-            GameRoom room = findRoomByPlayer(username);
-            if (room != null) {
-                handleLeaveRoom(handler, room.getRoomId());
+        if (handler.getPlayer() != null) {
+            handlersByUsername.remove(handler.getPlayer().getUsername().toLowerCase(), handler);
+        }
+        if (removed && handler.getPlayer() != null && !handler.isDetached()) {
+            GameRoom room = findRoomByPlayer(handler.getPlayer().getUsername());
+            if (room != null && "PLAYING".equals(room.getStatus()) && RESUME_GRACE_MS > 0) {
+                holdSession(handler, room);
+            } else {
+                finishDisconnect(handler);
             }
+        }
+        view.logMessage("Total connected clients: " + connectedClients.size());
+    }
 
-            removePlayer(username);
-            view.logMessage("[DISCONNECT] " + username + " has disconnected.");
-            broadcastPlayerList();
+    private void finishDisconnect(ClientHandler handler) {
+        String username = handler.getPlayer().getUsername();
+        
+        removePlayer(username);
+        sessions.revoke(username);
+        view.logMessage("[DISCONNECT] " + username + " has disconnected.");
+
+        // Queued behind the room's pending work. The player is already offline, so
+        // leaving cannot mark them online again, and a new login is not held up.
+        GameRoom room = findRoomByPlayer(username);
+        if (room != null) {
+            handleLeaveRoom(handler, room.getRoomId());
+        }
+        broadcastPlayerList();
+        broadcastPlayerScoreUpdate();
+    }
+
+    // The player keeps their seat and the turn timer keeps running, so their turns
+    // just time out until they resume or the grace window ends.
+    private void holdSession(ClientHandler handler, GameRoom room) {
+        String username = handler.getPlayer().getUsername();
+        SessionRegistry.Suspended session = sessions.suspend(username, handler);
+        sessions.setExpiry(session, scheduler.schedule(() -> {
+            if (sessions.expire(username, session)) {
+                view.logMessage("[DISCONNECT] " + username + " did not resume within " + RESUME_GRACE_MS + " ms.");
+                finishDisconnect(handler);
+            }
+        }, RESUME_GRACE_MS, TimeUnit.MILLISECONDS));
+
+        view.logMessage("[SUSPEND] " + username + " dropped mid-game. Holding room " + room.getRoomId() + " for " + RESUME_GRACE_MS + " ms.");
+        broadcastToRoom(room, new Command(Command.Type.CHAT_MESSAGE, "SERVER",
+                username + " lost connection. Waiting " + (RESUME_GRACE_MS / 1000) + "s for them to reconnect."), handler);
+    }
+
+    // A fresh LOGIN gives up a held session right away, as a disconnect used to.
+    public void releaseSuspendedSession(String username) {
+        SessionRegistry.Suspended session = sessions.claim(username);
+        if (session != null) {
+            finishDisconnect(session.getHandler());
+        }
+    }
+
+    public void handleResume(ClientHandler handler, String username, String token) {
+        if (username == null || !sessions.isValid(username, token)) {
+            handler.sendMessage(new Command(Command.Type.RESUME_FAILED, "SERVER", "Session expired. Please log in again."));
+            return;
+        }
+
+        Player player;
+        ClientHandler previous;
+        SessionRegistry.Suspended session = sessions.claim(username);
+        if (session != null) {
+            previous = session.getHandler();
+            player = previous.getPlayer();
+        } else {
+            // The old connection is half-open and has not been reaped yet.
+            ClientHandler old = findClientHandler(username);
+            if (old == null || old == handler) {
+                handler.sendMessage(new Command(Command.Type.RESUME_FAILED, "SERVER", "Session expired. Please log in again."));
+                return;
+            }
+            previous = old;
+            player = old.getPlayer();
+            old.detach();
+        }
+
+        handler.resume(player);
+        // Pages may have changed while the client was away; the next push brings it up to date.
+        LeaderboardSubscription subscription = previous.getLeaderboardSubscription();
+        if (subscription != null) {
+            subscription.invalidate();
+            handler.setLeaderboardSubscription(subscription);
             broadcastPlayerScoreUpdate();
         }
-        view.logMessage("Total connected clients: " + connectedClients.size());
+        handlersByUsername.put(player.getUsername().toLowerCase(), handler);
+        GameRoom room = findRoomByPlayer(player.getUsername());
+        view.logMessage("[RESUME] " + player.getUsername() + " resumed from " + handler.getRemoteAddress()
+                + (room != null ? " into room " + room.getRoomId() : "") + ".");
+
+        runInRoom(room, () -> {
+            handler.sendMessage(new Command(Command.Type.RESUME_SUCCESS, "SERVER", room));
+            if (room == null) {
+                sendLobbySnapshot(handler);
+            } else {
+                broadcastToRoom(room, new Command(Command.Type.CHAT_MESSAGE, "SERVER", player.getUsername() + " reconnected."), handler);
+            }
+        });
     }
 
     public void broadcastPlayerList() {
-        view.logMessage("Broadcasting player list... (" + onlinePlayers.size() + " users online)");
-        
-        List<Player> lobbyPlayers;
-        synchronized (allPlayersData) {
-            lobbyPlayers = allPlayersData.values().stream()
-                .filter(p -> "Online".equals(p.getStatus()))
-                .collect(Collectors.toList());
+        playersDirty.set(true);
+        scheduleLobbyFlush();
+    }
+
+    // Lobby broadcasts only mark what changed; one flush per tick sends it all.
+    private void scheduleLobbyFlush() {
+        if (LOBBY_TICK_MS <= 0) {
+            flushLobby();
+        } else if (lobbyFlushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flushLobby, LOBBY_TICK_MS, TimeUnit.MILLISECONDS);
         }
-            
-        Command command = new Command(Command.Type.UPDATE_PLAYER_LIST, "SERVER", new ArrayList<>(lobbyPlayers));
-        
-        synchronized (connectedClients) {
-            for (ClientHandler client : connectedClients) {
-                if (client.getPlayer() != null) { 
-                    client.sendMessage(command);
-                }
+    }
+
+    // Only the players and rooms that changed since the last flush are sent, as one batch.
+    private void flushLobby() {
+        lobbyFlushScheduled.set(false);
+        lobbyLock.lock();
+        try {
+            List<Command> events = new ArrayList<>();
+            if (playersDirty.getAndSet(false)) {
+                events.addAll(lobbyTracker.diffPlayers(presence.onlinePlayers()));
             }
+            if (roomsDirty.getAndSet(false)) {
+                events.addAll(lobbyTracker.diffRooms(allRooms()));
+            }
+
+            if (events.size() == 1) {
+                broadcastLobby(events.get(0));
+            } else if (!events.isEmpty()) {
+                view.logMessage("Broadcasting " + events.size() + " lobby event(s)... (" + presence.size() + " users online)");
+                broadcastLobby(new Command(Command.Type.LOBBY_EVENTS, "SERVER", new ArrayList<>(events)));
+            }
+            if (leaderboardDirty.getAndSet(false)) {
+                pushLeaderboardPages();
+            }
+        } catch (RuntimeException e) {
+            logError("Lobby flush failed: " + e);
+        } finally {
+            lobbyLock.unlock();
+        }
+    }
+
+    // Full lists go to a client once, at login; everything after that is an event.
+    public void sendLobbySnapshot(ClientHandler handler) {
+        lobbyLock.lock();
+        try {
+            handler.sendMessage(new Command(Command.Type.LOGIN_SUCCESS, "SERVER", getOnlinePlayers()));
+            handler.sendMessage(new Command(Command.Type.UPDATE_ROOM_LIST, "SERVER", LobbyTracker.summarize(allRooms())));
+            String username = handler.getPlayer().getUsername();
+            handler.sendMessage(new Command(Command.Type.SESSION_TOKEN, username, sessions.issue(username)));
+
+            // New logins follow the top of the board; a resumed session keeps the page it had.
+            LeaderboardSubscription subscription = handler.getLeaderboardSubscription();
+            if (subscription == null) {
+                subscription = LeaderboardSubscription.window(0, LEADERBOARD_TOP_SIZE);
+                handler.setLeaderboardSubscription(subscription);
+            }
+            subscription.invalidate();
+            sendLeaderboard(handler, subscription, false);
+        } finally {
+            lobbyLock.unlock();
         }
     }
     
     public void broadcastPlayerScoreUpdate() {
-    Command command = new Command(Command.Type.UPDATE_PLAYER_SCORE, "SERVER", getLeaderboard());
-    
-    synchronized (connectedClients) {
+        leaderboardDirty.set(true);
+        scheduleLobbyFlush();
+    }
+
+    // Encodes once; every recipient's writer gets a view over the same frame bytes.
+    private void broadcastToLoggedIn(Command command) {
+        EncodedCommand encoded = new EncodedCommand(command);
         for (ClientHandler client : connectedClients) {
             if (client.getPlayer() != null) { 
-                client.sendMessage(command);
+                client.sendEncoded(encoded);
             }
         }
     }
-}
+
+    private void broadcastLobby(Command command) {
+        EncodedCommand encoded = new EncodedCommand(command);
+        for (ClientHandler client : connectedClients) {
+            if (client.getPlayer() != null) { 
+                client.sendLobby(encoded);
+            }
+        }
+    }
+
+    // A client that dropped lobby events while behind gets the full lists again.
+    void resyncLobby(ClientHandler handler) {
+        lobbyLock.lock();
+        try {
+            if (handler.catchUp() && handler.getPlayer() != null) {
+                handler.sendMessage(new Command(Command.Type.UPDATE_PLAYER_LIST, "SERVER", getOnlinePlayers()));
+                handler.sendMessage(new Command(Command.Type.UPDATE_ROOM_LIST, "SERVER", LobbyTracker.summarize(allRooms())));
+                LeaderboardSubscription subscription = handler.getLeaderboardSubscription();
+                if (subscription != null) {
+                    subscription.invalidate();
+                    sendLeaderboard(handler, subscription, false);
+                }
+                lobbyResyncs.increment();
+            }
+        } finally {
+            lobbyLock.unlock();
+        }
+    }
+
+    private void checkSlowConsumers() {
+        long now = System.currentTimeMillis();
+        for (ClientHandler client : connectedClients) {
+            client.checkBackpressure(now);
+        }
+    }
+
+    void recordLobbyDrop() {
+        lobbyDrops.increment();
+    }
+
+    void recordEviction() {
+        slowEvictions.increment();
+    }
+
+    void recordReaped() {
+        reapedConnections.increment();
+    }
     
     public ArrayList<Player> getOnlinePlayers() {
-        synchronized (onlinePlayers) {
-            return new ArrayList<>(onlinePlayers);
-        }
+        return presence.onlinePlayers();
     }
 
     public void logError(String error) {
@@ -217,12 +693,19 @@ public class ServerControl {
     public void handleCreateRoom(ClientHandler handler, int cardCount) {
         Player host = handler.getPlayer();
         if (host == null) return;
+        if (!GameRoom.isValidCardCount(cardCount)) {
+            rejectCardCount(handler, cardCount);
+            return;
+        }
+
+        if (!claimNewRoom(handler, host)) return;
 
         String roomId = "Room-" + UUID.randomUUID().toString().substring(0, 4);
         GameRoom newRoom = new GameRoom(roomId, host, cardCount);
-        activeRooms.add(newRoom);
+        shardFor(roomId).getRooms().add(newRoom);
         
-        host.setStatus("Online");
+        // Alone in the room, the host can still be invited.
+        presence.transition(host.getUsername(), PlayerStatus.IN_ROOM, PlayerStatus.LOBBY);
         
         handler.sendMessage(new Command(Command.Type.CREATE_ROOM_SUCCESS, "SERVER", newRoom));
         
@@ -231,16 +714,46 @@ public class ServerControl {
         view.logMessage("New room created: " + roomId + " by " + host.getUsername());
     }
 
+    // Holds the host's seat the way a join does, so a create cannot race a join in flight.
+    private boolean claimNewRoom(ClientHandler handler, Player host) {
+        if (presence.transition(host.getUsername(), PlayerStatus.LOBBY, PlayerStatus.IN_ROOM)) {
+            if (findRoomByPlayer(host.getUsername()) == null) {
+                return true;
+            }
+            presence.transition(host.getUsername(), PlayerStatus.IN_ROOM, PlayerStatus.LOBBY);
+        }
+        handler.sendMessage(new Command(Command.Type.CHAT_MESSAGE, "SERVER", "You are already in another room."));
+        return false;
+    }
+
+    // Back to the lobby from a room, whether or not a game was running in it.
+    private void returnToLobby(String username) {
+        if (!presence.transition(username, PlayerStatus.IN_ROOM, PlayerStatus.LOBBY)) {
+            presence.transition(username, PlayerStatus.PLAYING, PlayerStatus.LOBBY);
+        }
+    }
+
+    private void rejectCardCount(ClientHandler handler, int cardCount) {
+        handler.sendMessage(new Command(Command.Type.CHAT_MESSAGE, "SERVER", "Invalid board size: " + cardCount
+                + " cards. Boards have an even number of cards from " + GameRoom.MIN_CARD_COUNT + " to " + GameRoom.MAX_CARD_COUNT + "."));
+    }
+
     public void handleCreateRoomAndInvite(ClientHandler hostHandler, InviteData data) {
         Player host = hostHandler.getPlayer();
         if (host == null) return;
 
         int cardCount = data.getCardCount();
+        if (!GameRoom.isValidCardCount(cardCount)) {
+            rejectCardCount(hostHandler, cardCount);
+            return;
+        }
+        if (!claimNewRoom(hostHandler, host)) return;
+
         String roomId = "Room-" + UUID.randomUUID().toString().substring(0, 4);
         GameRoom newRoom = new GameRoom(roomId, host, cardCount);
-        activeRooms.add(newRoom);
+        shardFor(roomId).getRooms().add(newRoom);
         
-        host.setStatus("Online");
+        presence.transition(host.getUsername(), PlayerStatus.IN_ROOM, PlayerStatus.LOBBY);
         
         hostHandler.sendMessage(new Command(Command.Type.CREATE_ROOM_SUCCESS, "SERVER", newRoom));
         
@@ -248,7 +761,7 @@ public class ServerControl {
         ClientHandler targetHandler = findClientHandler(targetUsername);
         
         if (targetHandler != null) {
-            if (!"Online".equals(targetHandler.getPlayer().getStatus())) {
+            if (presence.statusOf(targetUsername) != PlayerStatus.LOBBY) {
                 hostHandler.sendMessage(new Command(Command.Type.CHAT_MESSAGE, "SERVER", "Player " + targetUsername + " is busy."));
                 return;
             }
@@ -288,7 +801,7 @@ public class ServerControl {
 
         ClientHandler targetHandler = findClientHandler(targetUsername);
         if (targetHandler != null) {
-            if (!"Online".equals(targetHandler.getPlayer().getStatus())) {
+            if (presence.statusOf(targetUsername) != PlayerStatus.LOBBY) {
                 inviter.sendMessage(new Command(Command.Type.CHAT_MESSAGE, "SERVER", "Player " + targetUsername + " is busy."));
                 return;
             }
@@ -303,25 +816,36 @@ public class ServerControl {
         }
     }
 
+    // Leaving the old room runs on its mailbox, then the join is handed to the new one.
     public void handleJoinRoom(ClientHandler handler, String roomId) {
-    Player player = handler.getPlayer();
+        GameRoom oldRoom = findRoomByPlayer(handler.getPlayer().getUsername());
+        Runnable join = () -> runInRoom(findRoomById(roomId), () -> joinRoom(handler, roomId));
+        if (oldRoom == null) {
+            join.run();
+            return;
+        }
+        runInRoom(oldRoom, () -> {
+            leaveOldRoom(handler, oldRoom, roomId);
+            join.run();
+        });
+    }
 
-    GameRoom oldRoom = findRoomByPlayer(player.getUsername());
-    if (oldRoom != null) {
+    private void leaveOldRoom(ClientHandler handler, GameRoom oldRoom, String roomId) {
+    Player player = handler.getPlayer();
+    if (findRoomByPlayer(player.getUsername()) == oldRoom) {
         view.logMessage("[JOIN] Player " + player.getUsername() + " is leaving old room " + oldRoom.getRoomId() + " to join " + roomId);
-        synchronized(oldRoom.getPlayers()) { 
-            oldRoom.removePlayer(player); 
-        }
+        shardFor(oldRoom.getRoomId()).getRooms().leave(oldRoom, player);
+        returnToLobby(player.getUsername());
         
         if (oldRoom.getPlayerCount() == 0) {
-            activeRooms.remove(oldRoom);
+            shardFor(oldRoom.getRoomId()).getRooms().remove(oldRoom);
             view.logMessage("Room " + oldRoom.getRoomId() + " was disbanded (empty).");
         } else {
             Player remainingPlayer = oldRoom.getPlayers().get(0);
             if (player.equals(oldRoom.getHost())) { 
                 oldRoom.setHost(remainingPlayer); 
             }
-            remainingPlayer.setStatus("Online");
+            returnToLobby(remainingPlayer.getUsername());
             oldRoom.setStatus("WAITING");
             oldRoom.getReadyPlayers().clear();
             oldRoom.getReadyPlayers().add(remainingPlayer.getUsername());
@@ -330,28 +854,26 @@ public class ServerControl {
         }
         broadcastRoomList();
     }
-    
-    if (player == null || !"Online".equals(player.getStatus())) {
+}
+
+    private void joinRoom(ClientHandler handler, String roomId) {
+    Player player = handler.getPlayer();
+    // Claims the seat up front so two joins in flight cannot both succeed; undone on failure.
+    if (player == null || !presence.transition(player.getUsername(), PlayerStatus.LOBBY, PlayerStatus.IN_ROOM)) {
         handler.sendMessage(new Command(Command.Type.JOIN_ROOM_FAILED, "SERVER", "You are already in another room."));
         return;
     }
 
     GameRoom room = findRoomById(roomId);
     if (room != null) {
-        boolean added = false;
-        
-        synchronized (room.getPlayers()) {
-            if (room.getPlayerCount() < room.getMaxPlayers() && !room.getPlayers().contains(player)) {
-                room.getPlayers().add(player);
-                added = true;
-            }
-        }
+        boolean added = shardFor(roomId).getRooms().join(room, player);
 
         if (added) {
             
             if (room.getPlayerCount() == room.getMaxPlayers()) {
-                room.getHost().setStatus("InRoom");
-                player.setStatus("InRoom");
+                presence.transition(room.getHost().getUsername(), PlayerStatus.LOBBY, PlayerStatus.IN_ROOM);
+            } else {
+                presence.transition(player.getUsername(), PlayerStatus.IN_ROOM, PlayerStatus.LOBBY);
             }
             
             view.logMessage("[JOIN] " + player.getUsername() + " joined room " + roomId);
@@ -367,18 +889,25 @@ public class ServerControl {
             broadcastPlayerList();
             broadcastRoomList();
         } else {
+            presence.transition(player.getUsername(), PlayerStatus.IN_ROOM, PlayerStatus.LOBBY);
             handler.sendMessage(new Command(Command.Type.JOIN_ROOM_FAILED, "SERVER", "Room is full or you are already in it."));
         }
     } else {
+        presence.transition(player.getUsername(), PlayerStatus.IN_ROOM, PlayerStatus.LOBBY);
         handler.sendMessage(new Command(Command.Type.JOIN_ROOM_FAILED, "SERVER", "Room not found."));
     }
 }
 
     public void handleLeaveRoom(ClientHandler handler, String roomId) {
+        runInRoom(findRoomById(roomId), () -> leaveRoom(handler, roomId));
+    }
+
+    private void leaveRoom(ClientHandler handler, String roomId) {
         Player player = handler.getPlayer();
         GameRoom room = findRoomById(roomId);
 
-        if (player == null || room == null) return;
+        // A leave that arrives after the player already moved on must not touch the new room's state.
+        if (player == null || room == null || findRoomByPlayer(player.getUsername()) != room) return;
 
         cleanupRoomTimer(roomId);
         
@@ -391,21 +920,21 @@ public class ServerControl {
                     .findFirst().orElse(null);
             
             if (winner != null) {
-                int winnerMatchScore = room.getGameState().getScores().getOrDefault(winner.getUsername(), 0);
-                int loserMatchScore = room.getGameState().getScores().getOrDefault(player.getUsername(), 0);
+                int winnerMatchScore = room.getGameState().getScore(winner.getUsername());
+                int loserMatchScore = room.getGameState().getScore(player.getUsername());
                 int bonusScore = 5;
                 
                 updatePlayerStats(winner, winnerMatchScore + bonusScore, true, false, false); 
                 updatePlayerStats(player, loserMatchScore, false, false, true); 
                 
-                dbManager.insertMatchHistory(
+                writeToDatabase(() -> dbManager.insertMatchHistory(
                         winner.getUsername(), 
                         player.getUsername(), 
                         winnerMatchScore, 
                         loserMatchScore, 
                         winner.getUsername(),
                         false
-                );
+                ));
 
                 room.getGameState().setMessage(player.getUsername() + " left! " + winner.getUsername() + " wins!");
                 room.getGameState().setGameStatus("FINISHED");
@@ -415,18 +944,16 @@ public class ServerControl {
             }
         }
 
-        synchronized (room.getPlayers()) {
-            room.removePlayer(player);
-        }
-        player.setStatus("Online");
+        shardFor(room.getRoomId()).getRooms().leave(room, player);
+        returnToLobby(player.getUsername());
         
         if (room.getPlayerCount() == 0) {
-            activeRooms.remove(room);
+            shardFor(room.getRoomId()).getRooms().remove(room);
             view.logMessage("Room " + roomId + " was disbanded (empty).");
         } else {
             Player remainingPlayer = room.getPlayers().get(0);
             
-            remainingPlayer.setStatus("Online");
+            returnToLobby(remainingPlayer.getUsername());
             
             if (wasHost) {
                  view.logMessage("Host " + player.getUsername() + " left room " + roomId);
@@ -459,6 +986,10 @@ public class ServerControl {
     }
     
     public void handleRematchRequest(ClientHandler handler) {
+        runInPlayersRoom(handler, () -> rematchRequest(handler));
+    }
+
+    private void rematchRequest(ClientHandler handler) {
         Player player = handler.getPlayer();
         GameRoom room = findRoomByPlayer(player.getUsername());
         if (room == null || !room.getStatus().equals("FINISHED")) return;
@@ -478,6 +1009,7 @@ public class ServerControl {
             }
             
             room.initializeGame();
+            setRoomPresence(room, PlayerStatus.IN_ROOM, PlayerStatus.PLAYING);
             
             room.getGameState().setTurnStartTime(System.currentTimeMillis());
             room.getGameState().setTurnDuration(TURN_DURATION_MS);
@@ -506,6 +1038,10 @@ public class ServerControl {
     }
     
     public void handleRematchResponse(ClientHandler handler, boolean accepted) {
+        runInPlayersRoom(handler, () -> rematchResponse(handler, accepted));
+    }
+
+    private void rematchResponse(ClientHandler handler, boolean accepted) {
         Player player = handler.getPlayer();
         GameRoom room = findRoomByPlayer(player.getUsername());
         if (room == null || !room.getStatus().equals("FINISHED")) return;
@@ -524,20 +1060,18 @@ public class ServerControl {
             // Check if the leaving player was the HOST
             boolean wasHost = player.equals(room.getHost());
 
-            synchronized (room.getPlayers()) {
-                room.removePlayer(player);
-            }
-            player.setStatus("Online");
+            shardFor(room.getRoomId()).getRooms().leave(room, player);
+            returnToLobby(player.getUsername());
             
             Command leaveCmd = new Command(Command.Type.LEAVE_ROOM, "SERVER", "You have left the room.");
             handler.sendMessage(leaveCmd);
 
             if (room.getPlayerCount() == 0) {
-                activeRooms.remove(room);
+                shardFor(room.getRoomId()).getRooms().remove(room);
                 view.logMessage("Room " + room.getRoomId() + " was disbanded (empty).");
             } else {
                 Player remainingPlayer = room.getPlayers().get(0);
-                remainingPlayer.setStatus("Online");
+                returnToLobby(remainingPlayer.getUsername());
                 
                 // If the host left, assign the remaining player as the new HOST
                 if (wasHost) {
@@ -555,22 +1089,13 @@ public class ServerControl {
     }
     
     public void broadcastRoomList() {
-        Command roomListCmd = new Command(Command.Type.UPDATE_ROOM_LIST, "SERVER", new ArrayList<>(activeRooms));
-        synchronized (connectedClients) {
-            for (ClientHandler client : connectedClients) {
-                if (client.getPlayer() != null && "Online".equals(client.getPlayer().getStatus())) {
-                    client.sendMessage(roomListCmd);
-                }
-            }
-        }
+        roomsDirty.set(true);
+        scheduleLobbyFlush();
     }
     
     private void broadcastToRoom(GameRoom room, Command command, ClientHandler exclude) {
-    List<Player> playersInRoom;
-    
-    synchronized (room.getPlayers()) {
-        playersInRoom = new ArrayList<>(room.getPlayers());
-    }
+    List<Player> playersInRoom = new ArrayList<>(room.getPlayers());
+    EncodedCommand encoded = new EncodedCommand(command);
 
     view.logMessage("[BROADCAST_TO_ROOM] Room: " + room.getRoomId() + 
                     ", Command: " + command.getType() + 
@@ -581,7 +1106,7 @@ public class ServerControl {
         ClientHandler handler = findClientHandler(p.getUsername());
         if (handler != null && handler != exclude) {
             view.logMessage("[BROADCAST_TO_ROOM] Sending to " + p.getUsername());
-            handler.sendMessage(command);
+            handler.sendEncoded(encoded);
         } else {
             if (handler == null) {
                 view.logMessage("[BROADCAST_TO_ROOM] Handler NULL for " + p.getUsername());
@@ -602,37 +1127,58 @@ public void broadcastRoomState(GameRoom room) {
 }
 
     private ClientHandler findClientHandler(String username) {
-        synchronized (connectedClients) {
-            return connectedClients.stream()
-                    .filter(h -> h.getPlayer() != null && h.getPlayer().getUsername().equalsIgnoreCase(username))
-                    .findFirst()
-                    .orElse(null);
-        }
+        return handlersByUsername.get(username.toLowerCase());
+    }
+
+    // Atomic, so two concurrent logins with the same name cannot both succeed.
+    boolean claimUsername(String username, ClientHandler handler) {
+        ClientHandler existing = handlersByUsername.putIfAbsent(username.toLowerCase(), handler);
+        return existing == null || existing == handler;
+    }
+
+    void releaseUsername(String username, ClientHandler handler) {
+        handlersByUsername.remove(username.toLowerCase(), handler);
+    }
+
+    private RoomShard shardFor(String roomId) {
+        return shards[Math.floorMod(roomId.toLowerCase().hashCode(), shards.length)];
     }
 
     private GameRoom findRoomByPlayer(String username) {
-        synchronized (activeRooms) {
-            for (GameRoom r : activeRooms) {
-                synchronized (r.getPlayers()) {
-                    if (r.getPlayers().stream().anyMatch(p -> p.getUsername().equalsIgnoreCase(username))) {
-                        return r;
-                    }
-                }
-            }
-            return null;
-        }
+        return findRoomById(roomIdByPlayer.get(username.toLowerCase()));
     }
 
     private GameRoom findRoomById(String roomId) {
-        synchronized (activeRooms) {
-            return activeRooms.stream()
-                    .filter(r -> r.getRoomId().equalsIgnoreCase(roomId))
-                    .findFirst()
-                    .orElse(null);
+        return roomId == null ? null : shardFor(roomId).getRooms().findById(roomId);
+    }
+
+    private List<GameRoom> allRooms() {
+        List<GameRoom> all = new ArrayList<>();
+        for (RoomShard shard : shards) {
+            all.addAll(shard.getRooms().all());
         }
+        return all;
+    }
+
+    // Room state is only changed from the room's own mailbox; with no room the task runs inline.
+    private void runInRoom(GameRoom room, Runnable task) {
+        if (room == null) {
+            task.run();
+        } else {
+            shardFor(room.getRoomId()).getRooms().mailboxFor(room).execute(task);
+        }
+    }
+
+    private void runInPlayersRoom(ClientHandler handler, Runnable task) {
+        Player player = handler.getPlayer();
+        runInRoom(player == null ? null : findRoomByPlayer(player.getUsername()), task);
     }
 
     public void handlePlayerReady(ClientHandler handler) {
+        runInPlayersRoom(handler, () -> playerReady(handler));
+    }
+
+    private void playerReady(ClientHandler handler) {
         Player player = handler.getPlayer();
         GameRoom room = findRoomByPlayer(player.getUsername());
         if (room != null) {
@@ -641,14 +1187,16 @@ public void broadcastRoomState(GameRoom room) {
                 return;
             }
             
-            synchronized (room.getReadyPlayers()) {
-                room.setPlayerReady(player.getUsername());
-            }
+            room.setPlayerReady(player.getUsername());
             broadcastRoomState(room);
         }
     }
 
     public void handleStartGame(ClientHandler handler) {
+        runInPlayersRoom(handler, () -> startGame(handler));
+    }
+
+    private void startGame(ClientHandler handler) {
         Player player = handler.getPlayer();
         GameRoom room = findRoomByPlayer(player.getUsername());
 
@@ -668,6 +1216,7 @@ public void broadcastRoomState(GameRoom room) {
         }
 
         room.initializeGame();
+        setRoomPresence(room, PlayerStatus.IN_ROOM, PlayerStatus.PLAYING);
         
         room.getGameState().setTurnStartTime(System.currentTimeMillis());
         room.getGameState().setTurnDuration(TURN_DURATION_MS);
@@ -682,17 +1231,13 @@ public void broadcastRoomState(GameRoom room) {
     }
 
     private void startTurnTimer(GameRoom room) {
-        cleanupRoomTimer(room.getRoomId());
-        
-        Timer turnTimer = new Timer();
-        turnTimers.put(room.getRoomId(), turnTimer);
-        
-        turnTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
+        String roomId = room.getRoomId();
+        TurnTimers turnTimers = shardFor(roomId).getTurnTimers();
+        turnTimers.schedule(roomId, TURN_DURATION_MS, turn -> runInRoom(room, () -> {
+            if (turnTimers.fire(roomId, turn)) {
                 handleTurnTimeout(room);
             }
-        }, TURN_DURATION_MS);
+        }));
     }
 
     private void handleTurnTimeout(GameRoom room) {
@@ -702,10 +1247,12 @@ public void broadcastRoomState(GameRoom room) {
 
         GameState gameState = room.getGameState();
         
+        GameDelta delta = new GameDelta(room.getRoomId(), gameState.nextVersion());
         int flipCount = flipCountMap.getOrDefault(room.getRoomId(), 0);
         if (flipCount == 1) {
             int[] flippedIndices = flippedCardsMap.get(room.getRoomId());
             gameState.setCardFlipped(flippedIndices[0], false);
+            delta.addUnflipped(flippedIndices[0]);
         } 
 
         flipCountMap.put(room.getRoomId(), 0);
@@ -717,12 +1264,34 @@ public void broadcastRoomState(GameRoom room) {
         gameState.setTurnStartTime(System.currentTimeMillis());
         gameState.setTurnDuration(TURN_DURATION_MS);
         
-        Command updateCmd = new Command(Command.Type.GAME_UPDATE, "SERVER", gameState);
-        broadcastToRoom(room, updateCmd, null);
+        broadcastGameChange(room, delta);
         
         startTurnTimer(room);
     }
 
+    // Sends only what changed since the previous version; clients that miss a
+    // version ask for the full state with REQUEST_GAME_STATE.
+    private void broadcastGameChange(GameRoom room, GameDelta delta) {
+        GameState gameState = room.getGameState();
+        if (!DELTA_UPDATES) {
+            broadcastToRoom(room, new Command(Command.Type.GAME_UPDATE, "SERVER", gameState), null);
+            return;
+        }
+        delta.setTurn(gameState.getCurrentPlayerUsername(), gameState.getMessage(),
+                gameState.getTurnStartTime(), gameState.getTurnDuration());
+        broadcastToRoom(room, new Command(Command.Type.GAME_DELTA, "SERVER", delta), null);
+    }
+
+    public void handleRequestGameState(ClientHandler handler) {
+        runInPlayersRoom(handler, () -> requestGameState(handler));
+    }
+
+    private void requestGameState(ClientHandler handler) {
+        GameRoom room = findRoomByPlayer(handler.getPlayer().getUsername());
+        if (room == null || room.getGameState() == null) return;
+        handler.sendMessage(new Command(Command.Type.GAME_UPDATE, "SERVER", room.getGameState()));
+    }
+
     private void switchPlayerTurn(GameRoom room) {
         GameState gameState = room.getGameState();
         String currentPlayer = gameState.getCurrentPlayerUsername();
@@ -735,13 +1304,14 @@ public void broadcastRoomState(GameRoom room) {
     }
 
     private void cleanupRoomTimer(String roomId) {
-        Timer oldTimer = turnTimers.remove(roomId);
-        if (oldTimer != null) {
-            oldTimer.cancel();
-        }
+        shardFor(roomId).getTurnTimers().cancel(roomId);
     }
 
     public void handleFlipCard(ClientHandler handler, FlipData flipData) {
+        runInRoom(findRoomById(flipData.getRoomId()), () -> flipCard(handler, flipData));
+    }
+
+    private void flipCard(ClientHandler handler, FlipData flipData) {
         Player player = handler.getPlayer();
         String roomId = flipData.getRoomId();
         int cardIndex = flipData.getCardIndex();
@@ -761,20 +1331,19 @@ public void broadcastRoomState(GameRoom room) {
             return;
         }
         
-        if (gameState.isCardFlipped()[cardIndex] || gameState.isCardMatched()[cardIndex]) {
+        if (cardIndex < 0 || cardIndex >= gameState.getCardCount()
+                || gameState.isCardFlipped(cardIndex) || gameState.isCardMatched(cardIndex)) {
             return;
         }
         
-        Timer timer = turnTimers.get(roomId);
-        if (timer != null) {
-            timer.cancel(); 
-            turnTimers.remove(roomId);
-        }
+        cleanupRoomTimer(roomId);
 
         int newFlipCount = currentFlipCount + 1;
         int[] flippedIndices = flippedCardsMap.getOrDefault(roomId, new int[]{-1, -1});
 
         gameState.setCardFlipped(cardIndex, true);
+        GameDelta delta = new GameDelta(roomId, gameState.nextVersion());
+        delta.addFlipped(cardIndex);
 
         if (newFlipCount == 1) {
             flippedIndices[0] = cardIndex;
@@ -783,8 +1352,7 @@ public void broadcastRoomState(GameRoom room) {
             gameState.setTurnStartTime(System.currentTimeMillis());
             gameState.setTurnDuration(TURN_DURATION_MS);
             
-            Command updateCmd = new Command(Command.Type.GAME_UPDATE, "SERVER", gameState);
-            broadcastToRoom(room, updateCmd, null);
+            broadcastGameChange(room, delta);
             
             flipCountMap.put(roomId, newFlipCount);
             flippedCardsMap.put(roomId, flippedIndices);
@@ -798,8 +1366,7 @@ public void broadcastRoomState(GameRoom room) {
             gameState.setTurnStartTime(System.currentTimeMillis());
             gameState.setTurnDuration(TURN_DURATION_MS);
 
-            Command updateCmd = new Command(Command.Type.GAME_UPDATE, "SERVER", gameState);
-            broadcastToRoom(room, updateCmd, null);
+            broadcastGameChange(room, delta);
             
             flipCountMap.put(roomId, newFlipCount);
             flippedCardsMap.put(roomId, flippedIndices);
@@ -810,61 +1377,76 @@ public void broadcastRoomState(GameRoom room) {
     
     private void checkMatch(GameRoom room, Player player, int[] flippedIndices) {
         GameState gameState = room.getGameState();
-        String card1 = gameState.getCardValues().get(flippedIndices[0]);
-        String card2 = gameState.getCardValues().get(flippedIndices[1]);
+        boolean matched = gameState.isSameFace(flippedIndices[0], flippedIndices[1]);
 
-        cleanupRoomTimer(room.getRoomId());
-        
         gameState.setMessage("Get Ready!");
         gameState.setTurnDuration(2000); 
-        Command readyCmd = new Command(Command.Type.GAME_UPDATE, "SERVER", gameState);
-        broadcastToRoom(room, readyCmd, null);
-        
-        Timer delayTimer = new Timer();
-        delayTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                String currentMessage;
-                
-                if (card1.equals(card2)) {
-                    gameState.setCardMatched(flippedIndices[0], true);
-                    gameState.setCardMatched(flippedIndices[1], true);
-                    
-                    Map<String, Integer> scores = gameState.getScores();
-                    scores.put(player.getUsername(), scores.get(player.getUsername()) + 10);
-                    
-                    if (isGameFinished(gameState)) {
-                        handleGameOver(room, scores);
-                        return; 
-                    }
-                    
-                    currentMessage = player.getUsername() + " scored a point!";
-                } else {
-                    gameState.setCardFlipped(flippedIndices[0], false);
-                    gameState.setCardFlipped(flippedIndices[1], false);
-                    
-                    currentMessage = "No match!";
-                    switchPlayerTurn(room);
-                }
-                
-                
-                gameState.setMessage(currentMessage + " Turn: " + gameState.getCurrentPlayerUsername());
-                
-                gameState.setTurnStartTime(System.currentTimeMillis());
-                gameState.setTurnDuration(TURN_DURATION_MS);
-                
-                Command updateCmd = new Command(Command.Type.GAME_UPDATE, "SERVER", gameState);
-                broadcastToRoom(room, updateCmd, null);
-                
-                flipCountMap.put(room.getRoomId(), 0);
-                flippedCardsMap.put(room.getRoomId(), new int[]{-1, -1});
-                startTurnTimer(room);
+        broadcastGameChange(room, new GameDelta(room.getRoomId(), gameState.nextVersion()));
+        
+        // Takes the room's deadline slot, so leaving the room cancels the reveal too.
+        String roomId = room.getRoomId();
+        TurnTimers turnTimers = shardFor(roomId).getTurnTimers();
+        turnTimers.schedule(roomId, 2000, turn -> runInRoom(room, () -> {
+            if (turnTimers.fire(roomId, turn)) {
+                revealFlippedPair(room, player, flippedIndices, matched);
+            }
+        }));
+    }
+
+    private void revealFlippedPair(GameRoom room, Player player, int[] flippedIndices, boolean matched) {
+        if (!"PLAYING".equals(room.getStatus())) return;
+
+        GameState gameState = room.getGameState();
+        String currentMessage;
+        GameDelta delta = new GameDelta(room.getRoomId(), gameState.nextVersion());
+        
+        if (matched) {
+            gameState.setCardMatched(flippedIndices[0], true);
+            gameState.setCardMatched(flippedIndices[1], true);
+            delta.addMatched(flippedIndices[0]);
+            delta.addMatched(flippedIndices[1]);
+            
+            delta.setScore(player.getUsername(), gameState.addScore(player.getUsername(), 10));
+            
+            if (gameState.isAllMatched()) {
+                handleGameOver(room, gameState.getScores());
+                return; 
             }
-        }, 2000);
+            
+            currentMessage = player.getUsername() + " scored a point!";
+        } else {
+            gameState.setCardFlipped(flippedIndices[0], false);
+            gameState.setCardFlipped(flippedIndices[1], false);
+            delta.addUnflipped(flippedIndices[0]);
+            delta.addUnflipped(flippedIndices[1]);
+            
+            currentMessage = "No match!";
+            switchPlayerTurn(room);
+        }
+        
+        
+        gameState.setMessage(currentMessage + " Turn: " + gameState.getCurrentPlayerUsername());
+        
+        gameState.setTurnStartTime(System.currentTimeMillis());
+        gameState.setTurnDuration(TURN_DURATION_MS);
+        
+        broadcastGameChange(room, delta);
+        
+        flipCountMap.put(room.getRoomId(), 0);
+        flippedCardsMap.put(room.getRoomId(), new int[]{-1, -1});
+        startTurnTimer(room);
     }
     
+    private void setRoomPresence(GameRoom room, PlayerStatus expected, PlayerStatus next) {
+        for (Player p : room.getPlayers()) {
+            presence.transition(p.getUsername(), expected, next);
+        }
+        broadcastPlayerList();
+    }
+
     private void handleGameOver(GameRoom room, Map<String, Integer> finalScores) {
         room.setStatus("FINISHED");
+        setRoomPresence(room, PlayerStatus.PLAYING, PlayerStatus.IN_ROOM);
         room.getGameState().setGameStatus("FINISHED");
         
         List<Map.Entry<String, Integer>> sortedScores = finalScores.entrySet().stream()
@@ -913,7 +1495,8 @@ public void broadcastRoomState(GameRoom room) {
             updatePlayerStats(p, dbScoreChange, isWinner, isDraw, isLoser); 
         }
         
-        dbManager.insertMatchHistory(p1Name, p2Name, p1Score, p2Score, dbWinnerName, isDraw);
+        String historyWinner = dbWinnerName;
+        writeToDatabase(() -> dbManager.insertMatchHistory(p1Name, p2Name, p1Score, p2Score, historyWinner, isDraw));
         
         room.getGameState().setMessage(message);
         room.getGameState().setTurnDuration(0);
@@ -925,13 +1508,6 @@ public void broadcastRoomState(GameRoom room) {
         broadcastRoomList();
     }
     
-    private boolean isGameFinished(GameState gameState) {
-        for (boolean matched : gameState.isCardMatched()) {
-            if (!matched) return false;
-        }
-        return true;
-    }
-    
     public void handleGetMatchHistory(ClientHandler handler) {
         String username = handler.getPlayer().getUsername();
         List<MatchHistoryEntry> history = dbManager.getMatchHistoryForPlayer(username);
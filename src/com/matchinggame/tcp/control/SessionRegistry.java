@@ -0,0 +1,69 @@
+package com.matchinggame.tcp.control;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+// Resume tokens handed out at login, and the sessions whose connection dropped
+// mid-game and are being held for a grace window. Whoever removes a suspended
+// session first, the resuming client or the expiry task, owns it.
+public class SessionRegistry {
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+    private final Map<String, Suspended> suspended = new ConcurrentHashMap<>();
+
+    public static final class Suspended {
+        private final ClientHandler handler;
+        private volatile ScheduledFuture<?> expiry;
+
+        Suspended(ClientHandler handler) {
+            this.handler = handler;
+        }
+
+        public ClientHandler getHandler() {
+            return handler;
+        }
+    }
+
+    public String issue(String username) {
+        String token = UUID.randomUUID().toString();
+        tokens.put(username.toLowerCase(), token);
+        return token;
+    }
+
+    public boolean isValid(String username, String token) {
+        return token != null && token.equals(tokens.get(username.toLowerCase()));
+    }
+
+    public void revoke(String username) {
+        tokens.remove(username.toLowerCase());
+    }
+
+    public Suspended suspend(String username, ClientHandler handler) {
+        Suspended session = new Suspended(handler);
+        suspended.put(username.toLowerCase(), session);
+        return session;
+    }
+
+    void setExpiry(Suspended session, ScheduledFuture<?> expiry) {
+        session.expiry = expiry;
+    }
+
+    // Returns the held session if the caller won it, cancelling its expiry.
+    public Suspended claim(String username) {
+        Suspended session = suspended.remove(username.toLowerCase());
+        if (session != null && session.expiry != null) {
+            session.expiry.cancel(false);
+        }
+        return session;
+    }
+
+    // Used by the expiry task, which only wins if nobody resumed in the meantime.
+    public boolean expire(String username, Suspended session) {
+        return suspended.remove(username.toLowerCase(), session);
+    }
+
+    public int getSuspendedCount() {
+        return suspended.size();
+    }
+}
@@ -0,0 +1,100 @@
+package com.matchinggame.tcp.control;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SocketClientHandler extends ClientHandler implements Runnable {
+    private Socket clientSocket;
+    private DataInputStream in;
+    private DataOutputStream out;
+    private final Executor writerExecutor;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+    public SocketClientHandler(Socket socket, ServerControl serverControl, Executor writerExecutor) {
+        super(serverControl);
+        this.clientSocket = socket;
+        this.writerExecutor = writerExecutor;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(clientSocket.getOutputStream()));
+            in = new DataInputStream(new BufferedInputStream(clientSocket.getInputStream()));
+        } catch (IOException e) {
+            e.printStackTrace();
+            closeConnection();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            int preferredCodec = in.read();
+            if (preferredCodec < 0) return;
+            negotiate(preferredCodec);
+
+            while (clientSocket.isConnected() && !isClosing) {
+                byte[] frame = FrameCodec.readFrame(in);
+                processCommand(codec.decode(frame, 0, frame.length));
+            }
+        } catch (IOException e) {
+        } finally {
+            closeConnection();
+        }
+    }
+
+    @Override
+    protected void requestFlush() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                writerExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                drainScheduled.set(false);
+                closeConnection();
+            }
+        }
+    }
+
+    // Runs on the writer executor; drainScheduled guarantees a single writer per connection.
+    private void drain() {
+        try {
+            ByteBuffer frame;
+            while (!isClosing && (frame = outbound.poll()) != null) {
+                out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+            }
+            if (!isClosing) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            drainScheduled.set(false);
+            sendFailed();
+            return;
+        }
+        drainScheduled.set(false);
+
+        if (closeWhenDrained && outbound.isEmpty()) {
+            closeConnection();
+        } else if (!outbound.isEmpty()) {
+            requestFlush();
+        }
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return clientSocket.getInetAddress().getHostAddress();
+    }
+
+    @Override
+    protected void closeTransport() {
+        try {
+            if (clientSocket != null) clientSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
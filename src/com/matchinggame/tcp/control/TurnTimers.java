@@ -0,0 +1,67 @@
+package com.matchinggame.tcp.control;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+// The one pending deadline each room can have (a turn timeout or the reveal
+// delay after a second flip), on the scheduler of the shard that owns the room. Every
+// deadline gets a new turn number; a deadline that fires after it was replaced
+// or cancelled no longer matches its room's turn and is dropped.
+public class TurnTimers {
+    private static final class Deadline {
+        private final long turn;
+        private volatile ScheduledFuture<?> future;
+
+        Deadline(long turn) {
+            this.turn = turn;
+        }
+
+        void cancel() {
+            ScheduledFuture<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+        }
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Deadline> deadlines = new ConcurrentHashMap<>();
+    private final AtomicLong turns = new AtomicLong();
+
+    public TurnTimers(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    // Replaces the room's current deadline. The task receives the turn number to pass to fire().
+    public long schedule(String roomId, long delayMs, LongConsumer task) {
+        Deadline deadline = new Deadline(turns.incrementAndGet());
+        Deadline old = deadlines.put(roomId, deadline);
+        if (old != null) {
+            old.cancel();
+        }
+        deadline.future = scheduler.schedule(() -> task.accept(deadline.turn), delayMs, TimeUnit.MILLISECONDS);
+        return deadline.turn;
+    }
+
+    // True, and the deadline is used up, only if it is still the room's current one.
+    public boolean fire(String roomId, long turn) {
+        Deadline deadline = deadlines.get(roomId);
+        return deadline != null && deadline.turn == turn && deadlines.remove(roomId, deadline);
+    }
+
+    public void cancel(String roomId) {
+        Deadline deadline = deadlines.remove(roomId);
+        if (deadline != null) {
+            deadline.cancel();
+        }
+    }
+
+    public int getPendingCount() {
+        return deadlines.size();
+    }
+}
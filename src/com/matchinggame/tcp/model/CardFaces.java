@@ -0,0 +1,23 @@
+package com.matchinggame.tcp.model;
+
+// The card faces client and server agree on. A card travels as its index in
+// this table; the client loads every image once and looks them up by id.
+public final class CardFaces {
+    private static final String[] IMAGE_NAMES = {
+        "icon (1).png", "icon (2).png", "icon (3).png", "icon (4).png",
+        "icon (5).png", "icon (6).png", "icon (7).png", "icon (8).png",
+        "icon (9).png", "icon (10).png", "icon (11).png", "icon (12).png",
+        "icon (13).png", "icon (14).png", "icon (15).png", "icon (16).png"
+    };
+
+    private CardFaces() {
+    }
+
+    public static int count() {
+        return IMAGE_NAMES.length;
+    }
+
+    public static String imageName(int id) {
+        return IMAGE_NAMES[id];
+    }
+}
@@ -43,7 +43,33 @@ public class Command implements Serializable {
         UPDATE_PLAYER_SCORE,
         
         GET_MATCH_HISTORY,
-        SEND_MATCH_HISTORY
+        SEND_MATCH_HISTORY,
+        
+        GAME_DELTA,
+        REQUEST_GAME_STATE,
+        
+        PLAYER_ONLINE,
+        PLAYER_OFFLINE,
+        PLAYER_STATUS_CHANGED,
+        ROOM_ADDED,
+        ROOM_UPDATED,
+        ROOM_REMOVED,
+        
+        LOBBY_EVENTS,
+        
+        PING,
+        PONG,
+        
+        SESSION_TOKEN,
+        RESUME,
+        RESUME_SUCCESS,
+        RESUME_FAILED,
+        
+        GET_LEADERBOARD_TOP,
+        GET_LEADERBOARD_PAGE,
+        GET_LEADERBOARD_AROUND_ME,
+        LEADERBOARD_PAGE,
+        LEADERBOARD_RANK
     }
 
     private Type type;
@@ -0,0 +1,124 @@
+package com.matchinggame.tcp.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public class GameDelta implements Serializable {
+    private static final long serialVersionUID = 13L;
+
+    private static final int[] NONE = new int[0];
+
+    private String roomId;
+    private int version;
+    private int[] flippedCards = NONE;
+    private int[] unflippedCards = NONE;
+    private int[] matchedCards = NONE;
+
+    private String scoreUsername;
+    private int score;
+
+    private String currentPlayerUsername;
+    private String message;
+    private long turnStartTime;
+    private int turnDuration;
+
+    public GameDelta(String roomId, int version) {
+        this.roomId = roomId;
+        this.version = version;
+    }
+
+    public void addFlipped(int cardIndex) {
+        flippedCards = append(flippedCards, cardIndex);
+    }
+
+    public void addUnflipped(int cardIndex) {
+        unflippedCards = append(unflippedCards, cardIndex);
+    }
+
+    public void addMatched(int cardIndex) {
+        matchedCards = append(matchedCards, cardIndex);
+    }
+
+    public void setScore(String username, int score) {
+        this.scoreUsername = username;
+        this.score = score;
+    }
+
+    public void setTurn(String currentPlayerUsername, String message, long turnStartTime, int turnDuration) {
+        this.currentPlayerUsername = currentPlayerUsername;
+        this.message = message;
+        this.turnStartTime = turnStartTime;
+        this.turnDuration = turnDuration;
+    }
+
+    // Applies this change to a snapshot; the caller checks the version first.
+    public void applyTo(GameState state) {
+        for (int index : flippedCards) {
+            state.setCardFlipped(index, true);
+        }
+        for (int index : unflippedCards) {
+            state.setCardFlipped(index, false);
+        }
+        for (int index : matchedCards) {
+            state.setCardMatched(index, true);
+        }
+        if (scoreUsername != null) {
+            state.setScore(scoreUsername, score);
+        }
+        state.setCurrentPlayerUsername(currentPlayerUsername);
+        state.setMessage(message);
+        state.setTurnStartTime(turnStartTime);
+        state.setTurnDuration(turnDuration);
+        state.setVersion(version);
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] result = Arrays.copyOf(values, values.length + 1);
+        result[values.length] = value;
+        return result;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int[] getFlippedCards() {
+        return flippedCards;
+    }
+
+    public int[] getUnflippedCards() {
+        return unflippedCards;
+    }
+
+    public int[] getMatchedCards() {
+        return matchedCards;
+    }
+
+    public String getScoreUsername() {
+        return scoreUsername;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public String getCurrentPlayerUsername() {
+        return currentPlayerUsername;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getTurnStartTime() {
+        return turnStartTime;
+    }
+
+    public int getTurnDuration() {
+        return turnDuration;
+    }
+}
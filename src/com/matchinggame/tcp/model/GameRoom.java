@@ -2,13 +2,18 @@ package com.matchinggame.tcp.model;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class GameRoom implements Serializable {
-    private static final long serialVersionUID = 10L;
+    private static final long serialVersionUID = 11L;
+
+    // Boards are an even number of cards; decoders reject card indices past the largest.
+    public static final int MIN_CARD_COUNT = 4;
+    public static final int MAX_CARD_COUNT = 128;
 
     private String roomId;
     private Player host;
@@ -17,21 +22,14 @@ public class GameRoom implements Serializable {
     private int cardCount;
     private String status;
     
-    public List<String> readyPlayers;
+    public CopyOnWriteArrayList<String> readyPlayers;
     private GameState gameState;
     
     private ConcurrentHashMap<String, Boolean> rematchStatus;
     
-    private static final List<String> IMAGE_NAMES = Arrays.asList(
-        "icon (1).png", "icon (2).png", "icon (3).png", "icon (4).png",
-        "icon (5).png", "icon (6).png", "icon (7).png", "icon (8).png",
-        "icon (9).png", "icon (10).png", "icon (11).png", "icon (12).png",
-        "icon (13).png", "icon (14).png", "icon (15).png", "icon (16).png"
-    );
-
     public GameRoom() {
-        this.players = new ArrayList<>();
-        this.readyPlayers = new ArrayList<>();
+        this.players = new CopyOnWriteArrayList<>();
+        this.readyPlayers = new CopyOnWriteArrayList<>();
         this.rematchStatus = new ConcurrentHashMap<>();
     }
 
@@ -41,31 +39,40 @@ public class GameRoom implements Serializable {
         this.cardCount = cardCount;
         this.maxPlayers = 2;
         this.status = "WAITING";
-        this.players = new ArrayList<>();
+        this.players = new CopyOnWriteArrayList<>();
         this.players.add(host);
-        this.readyPlayers = new ArrayList<>();
+        this.readyPlayers = new CopyOnWriteArrayList<>();
         this.readyPlayers.add(host.getUsername());
         this.rematchStatus = new ConcurrentHashMap<>();
     }
     
+    public static boolean isValidCardCount(int cardCount) {
+        return cardCount >= MIN_CARD_COUNT && cardCount <= MAX_CARD_COUNT && cardCount % 2 == 0;
+    }
+
     public void initializeGame() {
-        List<String> cards = new ArrayList<>();
         int numPairs = cardCount / 2;
-        
+        byte[] cards = new byte[numPairs * 2];
         for (int i = 0; i < numPairs; i++) {
-            String imageName = IMAGE_NAMES.get(i % IMAGE_NAMES.size());
-            cards.add(imageName);
-            cards.add(imageName);
+            byte face = (byte) (i % CardFaces.count());
+            cards[2 * i] = face;
+            cards[2 * i + 1] = face;
+        }
+        Random random = ThreadLocalRandom.current();
+        for (int i = cards.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            byte card = cards[i];
+            cards[i] = cards[j];
+            cards[j] = card;
         }
-        Collections.shuffle(cards);
         
-        ConcurrentHashMap<String, Integer> scores = new ConcurrentHashMap<>();
+        List<String> seats = new ArrayList<>();
         for(Player p : players) {
-            scores.put(p.getUsername(), 0);
+            seats.add(p.getUsername());
             rematchStatus.put(p.getUsername(), false);
         }
 
-        this.gameState = new GameState(roomId, cards, scores, cardCount);
+        this.gameState = new GameState(roomId, cards, seats);
         this.gameState.setCurrentPlayerUsername(host.getUsername());
         this.gameState.setGameStatus("PLAYING");
         this.gameState.setMessage("GO! Turn: " + host.getUsername());
@@ -81,9 +88,7 @@ public class GameRoom implements Serializable {
     }
     
     public void setPlayerReady(String username) {
-        if (!readyPlayers.contains(username)) {
-            readyPlayers.add(username);
-        }
+        readyPlayers.addIfAbsent(username);
     }
     
     public ConcurrentHashMap<String, Boolean> getRematchStatus() {
@@ -159,6 +164,10 @@ public class GameRoom implements Serializable {
         return maxPlayers;
     }
 
+    public void setMaxPlayers(int maxPlayers) {
+        this.maxPlayers = maxPlayers;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
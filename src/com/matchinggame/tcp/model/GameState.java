@@ -1,31 +1,41 @@
 package com.matchinggame.tcp.model;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+// Cards are one-byte ids into CardFaces, flipped and matched are bitsets, and
+// scores are one int per seat. A running count of matched cards makes the
+// game-over check constant time however large the board.
 public class GameState implements Serializable {
-    private static final long serialVersionUID = 11L;
+    private static final long serialVersionUID = 16L;
 
     private String roomId;
-    private List<String> cardValues;
-    private boolean[] cardFlipped;
-    private boolean[] cardMatched;
-    
-    private Map<String, Integer> scores;
+    private byte[] cards;
+    private long[] flipped;
+    private long[] matched;
+    private int matchedCount;
+
+    private String[] seats;
+    private int[] scores;
     private String currentPlayerUsername;
     private String gameStatus;
     private String message;
-    
+
     private long turnStartTime;
     private int turnDuration;
 
-    public GameState(String roomId, List<String> cardValues, Map<String, Integer> scores, int cardCount) {
+    private int version;
+
+    public GameState(String roomId, byte[] cards, List<String> seatUsernames) {
         this.roomId = roomId;
-        this.cardValues = cardValues;
-        this.scores = scores;
-        this.cardFlipped = new boolean[cardCount];
-        this.cardMatched = new boolean[cardCount];
+        this.cards = cards;
+        this.flipped = new long[(cards.length + 63) / 64];
+        this.matched = new long[(cards.length + 63) / 64];
+        this.seats = seatUsernames.toArray(new String[0]);
+        this.scores = new int[seats.length];
         this.gameStatus = "WAITING";
         this.turnDuration = 0;
     }
@@ -34,20 +44,118 @@ public class GameState implements Serializable {
         return roomId;
     }
 
-    public List<String> getCardValues() {
-        return cardValues;
+    public int getCardCount() {
+        return cards.length;
+    }
+
+    public int getCardId(int index) {
+        return cards[index] & 0xFF;
+    }
+
+    public byte[] getCardIds() {
+        return cards;
+    }
+
+    public boolean isSameFace(int first, int second) {
+        return cards[first] == cards[second];
+    }
+
+    public boolean isCardFlipped(int index) {
+        return (flipped[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public boolean isCardMatched(int index) {
+        return (matched[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void setCardFlipped(int index, boolean state) {
+        if (state) {
+            flipped[index >>> 6] |= 1L << index;
+        } else {
+            flipped[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    public void setCardMatched(int index, boolean state) {
+        if (state == isCardMatched(index)) return;
+        if (state) {
+            matched[index >>> 6] |= 1L << index;
+            matchedCount++;
+        } else {
+            matched[index >>> 6] &= ~(1L << index);
+            matchedCount--;
+        }
+    }
+
+    public long[] getFlippedWords() {
+        return flipped;
+    }
+
+    public long[] getMatchedWords() {
+        return matched;
+    }
+
+    // For decoders; the matched count is rebuilt from the bits.
+    public void setCardBits(long[] flippedWords, long[] matchedWords) {
+        this.flipped = Arrays.copyOf(flippedWords, flipped.length);
+        this.matched = Arrays.copyOf(matchedWords, matched.length);
+        matchedCount = 0;
+        for (long word : matched) {
+            matchedCount += Long.bitCount(word);
+        }
+    }
+
+    public boolean isAllMatched() {
+        return matchedCount == cards.length;
+    }
+
+    public int getSeatCount() {
+        return seats.length;
+    }
+
+    public String getSeatUsername(int seat) {
+        return seats[seat];
+    }
+
+    public int getSeatScore(int seat) {
+        return scores[seat];
     }
 
-    public boolean[] isCardFlipped() {
-        return cardFlipped;
+    public int getScore(String username) {
+        int seat = seatOf(username);
+        return seat < 0 ? 0 : scores[seat];
     }
 
-    public boolean[] isCardMatched() {
-        return cardMatched;
+    public void setScore(String username, int score) {
+        int seat = seatOf(username);
+        if (seat >= 0) {
+            scores[seat] = score;
+        }
     }
 
+    public int addScore(String username, int points) {
+        int seat = seatOf(username);
+        if (seat < 0) return 0;
+        scores[seat] += points;
+        return scores[seat];
+    }
+
+    // A copy, by seat order.
     public Map<String, Integer> getScores() {
-        return scores;
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < seats.length; i++) {
+            result.put(seats[i], scores[i]);
+        }
+        return result;
+    }
+
+    private int seatOf(String username) {
+        for (int i = 0; i < seats.length; i++) {
+            if (seats[i].equals(username)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     public String getCurrentPlayerUsername() {
@@ -62,18 +170,6 @@ public class GameState implements Serializable {
         return message;
     }
 
-    public void setCardFlipped(int index, boolean state) {
-        this.cardFlipped[index] = state;
-    }
-
-    public void setCardMatched(int index, boolean state) {
-        this.cardMatched[index] = state;
-    }
-
-    public void setScores(Map<String, Integer> scores) {
-        this.scores = scores;
-    }
-
     public void setCurrentPlayerUsername(String currentPlayerUsername) {
         this.currentPlayerUsername = currentPlayerUsername;
     }
@@ -85,7 +181,7 @@ public class GameState implements Serializable {
     public void setMessage(String message) {
         this.message = message;
     }
-    
+
     public long getTurnStartTime() {
         return turnStartTime;
     }
@@ -101,4 +197,16 @@ public class GameState implements Serializable {
     public void setTurnDuration(int turnDuration) {
         this.turnDuration = turnDuration;
     }
-}
\ No newline at end of file
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public int nextVersion() {
+        return ++version;
+    }
+}
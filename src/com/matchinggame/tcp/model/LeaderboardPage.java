@@ -0,0 +1,38 @@
+package com.matchinggame.tcp.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+// A slice of the ranked player table, with zero-based ranks. Pages carry
+// nothing specific to the player who receives them, so every client viewing
+// the same slice of the same version is sent the same encoded bytes.
+public class LeaderboardPage implements Serializable {
+    private static final long serialVersionUID = 24L;
+    private int version;
+    private int firstRank;
+    private int totalPlayers;
+    private ArrayList<Player> players;
+
+    public LeaderboardPage(int version, int firstRank, int totalPlayers, ArrayList<Player> players) {
+        this.version = version;
+        this.firstRank = firstRank;
+        this.totalPlayers = totalPlayers;
+        this.players = players;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getFirstRank() {
+        return firstRank;
+    }
+
+    public int getTotalPlayers() {
+        return totalPlayers;
+    }
+
+    public ArrayList<Player> getPlayers() {
+        return players;
+    }
+}
@@ -0,0 +1,30 @@
+package com.matchinggame.tcp.model;
+
+import java.io.Serializable;
+
+// knownVersion is the version of the page the client is showing, or -1;
+// asking again for the same page at the same version gets no reply.
+public class LeaderboardQuery implements Serializable {
+    private static final long serialVersionUID = 25L;
+    private int page;
+    private int pageSize;
+    private int knownVersion;
+
+    public LeaderboardQuery(int page, int pageSize, int knownVersion) {
+        this.page = page;
+        this.pageSize = pageSize;
+        this.knownVersion = knownVersion;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getKnownVersion() {
+        return knownVersion;
+    }
+}
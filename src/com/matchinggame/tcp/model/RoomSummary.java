@@ -0,0 +1,72 @@
+package com.matchinggame.tcp.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+// What the lobby room list shows for one room, without players or game state.
+public class RoomSummary implements Serializable {
+    private static final long serialVersionUID = 14L;
+
+    private String roomId;
+    private String hostUsername;
+    private int playerCount;
+    private int maxPlayers;
+    private int cardCount;
+    private String status;
+
+    public RoomSummary(String roomId, String hostUsername, int playerCount, int maxPlayers, int cardCount, String status) {
+        this.roomId = roomId;
+        this.hostUsername = hostUsername;
+        this.playerCount = playerCount;
+        this.maxPlayers = maxPlayers;
+        this.cardCount = cardCount;
+        this.status = status;
+    }
+
+    public static RoomSummary of(GameRoom room) {
+        return new RoomSummary(room.getRoomId(), room.getHost().getUsername(), room.getPlayerCount(),
+                room.getMaxPlayers(), room.getCardCount(), room.getStatus());
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public String getHostUsername() {
+        return hostUsername;
+    }
+
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    public int getMaxPlayers() {
+        return maxPlayers;
+    }
+
+    public int getCardCount() {
+        return cardCount;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        RoomSummary other = (RoomSummary) obj;
+        return playerCount == other.playerCount
+                && maxPlayers == other.maxPlayers
+                && cardCount == other.cardCount
+                && Objects.equals(roomId, other.roomId)
+                && Objects.equals(hostUsername, other.hostUsername)
+                && Objects.equals(status, other.status);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(roomId, hostUsername, playerCount, maxPlayers, cardCount, status);
+    }
+}
@@ -15,13 +15,18 @@ import java.util.Comparator;
 import java.util.List;
 
 import com.matchinggame.tcp.control.ClientControl;
+import com.matchinggame.tcp.model.CardFaces;
 import com.matchinggame.tcp.model.Command;
 import com.matchinggame.tcp.model.FlipData;
+import com.matchinggame.tcp.model.GameDelta;
 import com.matchinggame.tcp.model.GameRoom;
 import com.matchinggame.tcp.model.GameState;
 import com.matchinggame.tcp.model.InviteData;
+import com.matchinggame.tcp.model.LeaderboardPage;
+import com.matchinggame.tcp.model.LeaderboardQuery;
 import com.matchinggame.tcp.model.MatchHistoryEntry;
 import com.matchinggame.tcp.model.Player;
+import com.matchinggame.tcp.model.RoomSummary;
 import java.awt.CardLayout;
 import java.awt.Color;
 import java.awt.Component;
@@ -32,7 +37,6 @@ import java.awt.GridBagLayout;
 import java.awt.GridLayout;
 import java.awt.Image;
 import java.text.SimpleDateFormat;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -59,6 +63,14 @@ public class ClientView extends JFrame {
     
     private JList<Player> leaderboardList;
     private DefaultListModel<Player> leaderboardListModel;
+    private JLabel leaderboardRangeLabel;
+    private JButton leaderboardPrevButton;
+    private JButton leaderboardNextButton;
+    private int leaderboardFirstRank;
+    private int leaderboardTotal;
+    private int leaderboardMyRank = -1;
+    // Sent with each query so an unchanged page is not sent back.
+    private int leaderboardVersion = -1;
     private JButton viewHistoryButton;
     private MatchHistoryDialog matchHistoryDialog;
     
@@ -85,7 +97,8 @@ public class ClientView extends JFrame {
     
     private JLabel countdownLabel;
     
-    private Map<String, ImageIcon> imageCache;
+    // Indexed by card id (see CardFaces).
+    private ImageIcon[] cardImages;
     
     private JProgressBar turnTimerBar;
     private javax.swing.Timer swingTurnTimer;
@@ -94,6 +107,7 @@ public class ClientView extends JFrame {
     private int prepareTimeRemaining;
     private static final int TURN_DURATION_SEC = 10;
     private static final int PREPARE_DURATION = 2;
+    private static final int LEADERBOARD_PAGE_SIZE = 20;
     private int clientFlipCount = 0;
 
     private static final Color CHARCOAL_BLUE = new Color(0x1a202c);
@@ -175,13 +189,13 @@ public class ClientView extends JFrame {
     }
     
     private void loadImages() {
-        imageCache = new HashMap<>();
+        cardImages = new ImageIcon[CardFaces.count()];
         
-        for (int i = 1; i <= 16; i++) {
-            String imageName = "icon (" + i + ").png";
+        for (int id = 0; id < cardImages.length; id++) {
+            String imageName = CardFaces.imageName(id);
             try {
                 ImageIcon originalIcon = new ImageIcon(getClass().getResource("/com/matchinggame/resources/images/" + imageName));
-                imageCache.put(imageName, originalIcon);
+                cardImages[id] = originalIcon;
             } catch (Exception e) {
                 System.err.println("Could not load " + imageName);
             }
@@ -317,6 +331,30 @@ public class ClientView extends JFrame {
         JScrollPane leaderboardScrollPane = new JScrollPane(leaderboardList);
         leaderboardScrollPane.setBorder(null);
         leaderboardSection.add(leaderboardScrollPane, BorderLayout.CENTER);
+        
+        JPanel leaderboardControlPanel = new JPanel(new BorderLayout(10, 0));
+        leaderboardControlPanel.setBackground(CHARCOAL_BLUE);
+        leaderboardPrevButton = new JButton("< Prev");
+        styleButton(leaderboardPrevButton, GREY_BLUE, OFF_WHITE, FONT_MAIN_BOLD);
+        leaderboardPrevButton.addActionListener(e -> requestLeaderboardPage((leaderboardFirstRank - 1) / LEADERBOARD_PAGE_SIZE));
+        leaderboardNextButton = new JButton("Next >");
+        styleButton(leaderboardNextButton, GREY_BLUE, OFF_WHITE, FONT_MAIN_BOLD);
+        leaderboardNextButton.addActionListener(e -> requestLeaderboardPage(leaderboardFirstRank / LEADERBOARD_PAGE_SIZE + 1));
+        JButton leaderboardMeButton = new JButton("My Rank");
+        styleButton(leaderboardMeButton, WARM_ORANGE, OFF_WHITE, FONT_MAIN_BOLD);
+        leaderboardMeButton.addActionListener(e -> clientControl.sendCommand(new Command(Command.Type.GET_LEADERBOARD_AROUND_ME,
+                currentUsername, new LeaderboardQuery(0, LEADERBOARD_PAGE_SIZE, leaderboardVersion))));
+        leaderboardRangeLabel = new JLabel("", SwingConstants.CENTER);
+        leaderboardRangeLabel.setFont(FONT_MAIN_PLAIN);
+        leaderboardRangeLabel.setForeground(LIGHT_GREY);
+        JPanel leaderboardNavPanel = new JPanel(new GridLayout(1, 2, 10, 10));
+        leaderboardNavPanel.setBackground(CHARCOAL_BLUE);
+        leaderboardNavPanel.add(leaderboardPrevButton);
+        leaderboardNavPanel.add(leaderboardNextButton);
+        leaderboardControlPanel.add(leaderboardNavPanel, BorderLayout.WEST);
+        leaderboardControlPanel.add(leaderboardRangeLabel, BorderLayout.CENTER);
+        leaderboardControlPanel.add(leaderboardMeButton, BorderLayout.EAST);
+        leaderboardSection.add(leaderboardControlPanel, BorderLayout.SOUTH);
 
         mainSplitPane.setLeftComponent(leftPanel);
         mainSplitPane.setRightComponent(leaderboardSection);
@@ -507,16 +545,48 @@ public class ClientView extends JFrame {
                 updatePlayerList(lobbyPlayers);
                 break;
                 
-            case UPDATE_PLAYER_SCORE:
-                List<Player> leaderboard = (List<Player>) command.getData();
-                updateLeaderboard(leaderboard); 
+            // Sent in reply to a query, and pushed again whenever the page last asked for changes.
+            case LEADERBOARD_PAGE:
+                updateLeaderboard((LeaderboardPage) command.getData());
+                break;
+                
+            case LEADERBOARD_RANK:
+                leaderboardMyRank = (Integer) command.getData();
+                updateLeaderboardLabel();
                 break;
                 
             case UPDATE_ROOM_LIST:
-                ArrayList<GameRoom> rooms = (ArrayList<GameRoom>) command.getData();
+                ArrayList<RoomSummary> rooms = (ArrayList<RoomSummary>) command.getData();
                 updateRoomList(rooms);
                 break;
                 
+            case LOBBY_EVENTS:
+                for (Command event : (List<Command>) command.getData()) {
+                    handleServerCommand(event);
+                }
+                break;
+                
+            case PLAYER_ONLINE:
+            case PLAYER_STATUS_CHANGED:
+                upsertPlayer((Player) command.getData());
+                break;
+                
+            case PLAYER_OFFLINE:
+                removePlayerFromList((String) command.getData());
+                break;
+                
+            case ROOM_ADDED:
+            case ROOM_UPDATED:
+                upsertRoom((RoomSummary) command.getData());
+                break;
+                
+            case ROOM_REMOVED:
+                int roomIndex = indexOfRoom((String) command.getData());
+                if (roomIndex >= 0) {
+                    roomListModel.remove(roomIndex);
+                }
+                break;
+                
             case LOGIN:
                 String response = (String) command.getData();
                 if (response.startsWith("Error")) {
@@ -559,6 +629,24 @@ public class ClientView extends JFrame {
                 }
                 break;
                 
+            case RESUME_SUCCESS:
+                stopAllTimers();
+                GameRoom resumedRoom = (GameRoom) command.getData();
+                if (resumedRoom != null) {
+                    showGameRoomView(resumedRoom);
+                    if (resumedRoom.getGameState() != null && "PLAYING".equals(resumedRoom.getStatus())) {
+                        showGameUpdate(resumedRoom.getGameState());
+                    }
+                }
+                break;
+                
+            case RESUME_FAILED:
+                currentRoom = null;
+                currentGameState = null;
+                stopAllTimers();
+                logError((String) command.getData());
+                break;
+                
             case GAME_STARTED:
                 stopAllTimers();
                 currentGameState = (GameState) command.getData();
@@ -566,19 +654,19 @@ public class ClientView extends JFrame {
                 break;
                 
             case GAME_UPDATE:
-                GameState state = (GameState) command.getData();
-                String msg = state.getMessage();
-
-                if (msg.startsWith("Get Ready!")) {
-                    stopAllTimers();
-                } else {
-                    if (swingPrepareTimer.isRunning()) {
-                        swingPrepareTimer.stop();
-                    }
-                }
+                showGameUpdate((GameState) command.getData());
+                break;
                 
-                currentGameState = state;
-                renderGameBoard(currentGameState);
+            case GAME_DELTA:
+                GameDelta delta = (GameDelta) command.getData();
+                if (currentGameState == null
+                        || !currentGameState.getRoomId().equals(delta.getRoomId())
+                        || delta.getVersion() != currentGameState.getVersion() + 1) {
+                    clientControl.sendCommand(new Command(Command.Type.REQUEST_GAME_STATE, currentUsername, delta.getRoomId()));
+                    break;
+                }
+                delta.applyTo(currentGameState);
+                showGameUpdate(currentGameState);
                 break;
                 
             case GAME_OVER:
@@ -631,11 +719,31 @@ public class ClientView extends JFrame {
         }
     }
     
-    private void updateLeaderboard(List<Player> leaderboard) {
+    private void updateLeaderboard(LeaderboardPage page) {
+        leaderboardVersion = page.getVersion();
+        leaderboardFirstRank = page.getFirstRank();
+        leaderboardTotal = page.getTotalPlayers();
         leaderboardListModel.clear();
-        for (Player p : leaderboard) {
+        for (Player p : page.getPlayers()) {
             leaderboardListModel.addElement(p);
         }
+        updateLeaderboardLabel();
+    }
+    
+    private void updateLeaderboardLabel() {
+        int lastRank = leaderboardFirstRank + leaderboardListModel.size();
+        String range = leaderboardListModel.isEmpty()
+                ? "No players"
+                : String.format("%d-%d of %d", leaderboardFirstRank + 1, lastRank, leaderboardTotal);
+        leaderboardRangeLabel.setText(leaderboardMyRank >= 0 ? range + " | You: #" + (leaderboardMyRank + 1) : range);
+        leaderboardPrevButton.setEnabled(leaderboardFirstRank > 0);
+        leaderboardNextButton.setEnabled(lastRank < leaderboardTotal);
+    }
+    
+    private void requestLeaderboardPage(int page) {
+        LeaderboardQuery query = new LeaderboardQuery(page, LEADERBOARD_PAGE_SIZE, leaderboardVersion);
+        Command.Type type = page <= 0 ? Command.Type.GET_LEADERBOARD_TOP : Command.Type.GET_LEADERBOARD_PAGE;
+        clientControl.sendCommand(new Command(type, currentUsername, query));
     }
     
     private void showGameOverDialog(String message) {
@@ -652,15 +760,16 @@ public class ClientView extends JFrame {
         }
     }
     
+    private static final Comparator<Player> PLAYER_ORDER =
+            Comparator.comparing(Player::getStatus, Comparator.reverseOrder())
+                .thenComparing(Player::getUsername);
+
     private void updatePlayerList(ArrayList<Player> players) {
         playerListModel.clear();
         
         List<Player> sortedPlayers = players.stream()
             .filter(p -> !p.getUsername().equalsIgnoreCase(currentUsername))
-            .sorted(
-                Comparator.comparing(Player::getStatus, Comparator.reverseOrder())
-                .thenComparing(Player::getUsername)
-            )
+            .sorted(PLAYER_ORDER)
             .collect(Collectors.toList());
 
         for (Player p : sortedPlayers) {
@@ -668,19 +777,60 @@ public class ClientView extends JFrame {
         }
     }
     
-    private void updateRoomList(ArrayList<GameRoom> rooms) {
+    private void upsertPlayer(Player player) {
+        if (player.getUsername().equalsIgnoreCase(currentUsername)) return;
+        removePlayerFromList(player.getUsername());
+        
+        int index = 0;
+        while (index < playerListModel.size() && PLAYER_ORDER.compare(playerListModel.get(index), player) < 0) {
+            index++;
+        }
+        playerListModel.add(index, player);
+    }
+    
+    private void removePlayerFromList(String username) {
+        for (int i = 0; i < playerListModel.size(); i++) {
+            if (playerListModel.get(i).getUsername().equalsIgnoreCase(username)) {
+                playerListModel.remove(i);
+                return;
+            }
+        }
+    }
+    
+    private void updateRoomList(ArrayList<RoomSummary> rooms) {
         roomListModel.clear();
-        for (GameRoom room : rooms) {
-            String displayText = String.format("%s (%d/%d) - %d cards - %s", 
-                                                room.getRoomId(),
-                                                room.getPlayerCount(),
-                                                room.getMaxPlayers(),
-                                                room.getCardCount(),
-                                                room.getStatus());
-            roomListModel.addElement(displayText);
+        for (RoomSummary room : rooms) {
+            roomListModel.addElement(roomDisplayText(room));
+        }
+    }
+    
+    private void upsertRoom(RoomSummary room) {
+        int index = indexOfRoom(room.getRoomId());
+        if (index >= 0) {
+            roomListModel.set(index, roomDisplayText(room));
+        } else {
+            roomListModel.addElement(roomDisplayText(room));
         }
     }
     
+    private int indexOfRoom(String roomId) {
+        for (int i = 0; i < roomListModel.size(); i++) {
+            if (roomListModel.get(i).split(" ")[0].equals(roomId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private String roomDisplayText(RoomSummary room) {
+        return String.format("%s (%d/%d) - %d cards - %s", 
+                            room.getRoomId(),
+                            room.getPlayerCount(),
+                            room.getMaxPlayers(),
+                            room.getCardCount(),
+                            room.getStatus());
+    }
+    
     private void updateRoomState(GameRoom room) {
         currentRoom = room;
         setTitle("Room: " + room.getRoomId() + " - User: " + currentUsername);
@@ -783,13 +933,28 @@ public class ClientView extends JFrame {
         }
     }
 
+    private void showGameUpdate(GameState state) {
+        String msg = state.getMessage();
+
+        if (msg.startsWith("Get Ready!")) {
+            stopAllTimers();
+        } else {
+            if (swingPrepareTimer.isRunning()) {
+                swingPrepareTimer.stop();
+            }
+        }
+        
+        currentGameState = state;
+        renderGameBoard(currentGameState);
+    }
+
     private void renderGameBoard(GameState state) {
         if (state == null) return;
         
         currentGameState = state;
         gameBoardPanel.removeAll();
         
-        int cardCount = state.getCardValues().size();
+        int cardCount = state.getCardCount();
         
         int rows = 0;
         int cols = 0;
@@ -895,16 +1060,15 @@ public class ClientView extends JFrame {
             swingTurnTimer.start();
         }
 
-        Map<String, Integer> scores = state.getScores();
         List<Player> playersInRoom = currentRoom.getPlayers();
         
         if(playersInRoom.size() > 0) {
             String p1Name = playersInRoom.get(0).getUsername();
-            player1ScoreLabel.setText(p1Name + ": " + scores.getOrDefault(p1Name, 0));
+            player1ScoreLabel.setText(p1Name + ": " + state.getScore(p1Name));
         }
          if(playersInRoom.size() > 1) {
             String p2Name = playersInRoom.get(1).getUsername();
-            player2ScoreLabel.setText(p2Name + ": " + scores.getOrDefault(p2Name, 0));
+            player2ScoreLabel.setText(p2Name + ": " + state.getScore(p2Name));
         }
 
         for (int j = 0; j < cardCount; j++) {
@@ -912,13 +1076,13 @@ public class ClientView extends JFrame {
             button.setOpaque(true);
             button.setBorder(null);
             
-            if (state.isCardMatched()[j]) {
+            if (state.isCardMatched(j)) {
                 button.setVisible(false);
             } else {
                 button.setVisible(true);
-                if (state.isCardFlipped()[j]) {
-                    String imageName = state.getCardValues().get(j);
-                    ImageIcon icon = imageCache.get(imageName);
+                if (state.isCardFlipped(j)) {
+                    int cardId = state.getCardId(j);
+                    ImageIcon icon = cardId < cardImages.length ? cardImages[cardId] : null;
                     ImageIcon scaledIcon = scaleImage(icon, dynamicCardSize, dynamicCardSize);
                     
                     button.setText(null);
@@ -1267,7 +1431,7 @@ public class ClientView extends JFrame {
             rankLabel.setFont(FONT_MAIN_BOLD.deriveFont(18f));
             rankLabel.setForeground(WARM_ORANGE);
             rankLabel.setOpaque(false);
-            rankLabel.setPreferredSize(new Dimension(40, 0)); 
+            rankLabel.setPreferredSize(new Dimension(56, 0)); 
 
             nameLabel = new JLabel();
             nameLabel.setFont(FONT_MAIN_PLAIN.deriveFont(18f));
@@ -1287,7 +1451,7 @@ public class ClientView extends JFrame {
         @Override
         public Component getListCellRendererComponent(JList<? extends Player> list, Player player, int index, boolean isSelected, boolean cellHasFocus) {
             
-            rankLabel.setText(String.format("%d.", index + 1));
+            rankLabel.setText(String.format("%d.", leaderboardFirstRank + index + 1));
             nameLabel.setText(player.getUsername());
             
             statsLabel.setText(String.format("Score: %d | W: %d | L: %d | D: %d", 